@@ -0,0 +1,59 @@
+package team8.tuner;
+
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.controller.Controller;
+
+/**
+ * Controller which returns changing values without any CAN traffic, so benchmarks only measure our own code.
+ */
+class MockController implements Controller {
+
+	private double mValue;
+
+	@Override
+	public void follow(Controller master, boolean isInverted) {
+	}
+
+	@Override
+	public void reconfigure(MasterConfig config) {
+	}
+
+	@Override
+	public void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
+	}
+
+	@Override
+	public double getOutputCurrent() {
+		return mValue += 0.1;
+	}
+
+	@Override
+	public double getPosition() {
+		return mValue += 0.1;
+	}
+
+	@Override
+	public double getVelocity() {
+		return mValue += 0.1;
+	}
+
+	@Override
+	public double getAppliedPercentOutput() {
+		return mValue += 0.1;
+	}
+
+	@Override
+	public double getNativeOutputScale() {
+		return 1.0;
+	}
+
+	@Override
+	public double getPositionConversion() {
+		return 1.0;
+	}
+
+	@Override
+	public double getVelocityConversion() {
+		return 1.0;
+	}
+}
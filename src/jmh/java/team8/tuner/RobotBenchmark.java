@@ -0,0 +1,68 @@
+package team8.tuner;
+
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.*;
+import team8.tuner.config.Config;
+import team8.tuner.config.Config.CsvFormat;
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.controller.Controller;
+import team8.tuner.data.CSVWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the controllers and logging a row each loop, against mock controllers.
+ * Every mechanism is idle, so with several of them only one is read per loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotBenchmark {
+
+	@Param({"LONG", "WIDE"})
+	public CsvFormat mFormat;
+	@Param({"0", "3"})
+	public int mSlaveCount;
+	@Param({"1", "4"})
+	public int mMechanismCount;
+
+	private Robot mRobot;
+
+	@Setup
+	public void setup() {
+		HAL.initialize(500, 0);
+		mRobot = new Robot();
+		mRobot.robotInit();
+		var config = new Config();
+		config.master = new MasterConfig();
+		config.csvFormat = mFormat;
+		config.backgroundCsv = true;
+		var mechanisms = new ArrayList<Mechanism>();
+		for (int index = 0; index < mMechanismCount; index++) {
+			String name = String.format("Mechanism%d", index);
+			mechanisms.add(new Mechanism(name, config, mMechanismCount > 1 ? name + "/" : ""));
+		}
+		mRobot.initData(mechanisms);
+		for (Mechanism mechanism : mechanisms) {
+			Controller[] slaves = new Controller[mSlaveCount];
+			for (int index = 0; index < mSlaveCount; index++) slaves[index] = new MockController();
+			mechanism.setControllers(new MockController(), List.of(slaves));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		CSVWriter.write();
+		mRobot.close();
+	}
+
+	@Benchmark
+	public void periodicData() {
+		mRobot.periodicData();
+	}
+}
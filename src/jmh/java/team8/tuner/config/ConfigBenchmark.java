@@ -0,0 +1,45 @@
+package team8.tuner.config;
+
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.*;
+import team8.tuner.Robot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the config on enable, either parsed or copied out of the preloaded registry, and of printing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+
+	private Config mConfig;
+	private ConfigRegistry mRegistry;
+
+	@Setup
+	public void setup() {
+		HAL.initialize(500, 0);
+		mConfig = C.read(Config.class, Robot.kConfigFileNames.get(0));
+		mRegistry = new ConfigRegistry();
+		mRegistry.load(Runnable::run).join();
+	}
+
+	@Benchmark
+	public Config read() {
+		return C.read(Config.class, Robot.kConfigFileNames.get(0));
+	}
+
+	@Benchmark
+	public Config registryGet() {
+		return mRegistry.get(Robot.kConfigFileNames.get(0));
+	}
+
+	@Benchmark
+	public String configToString() {
+		return mConfig.toString();
+	}
+}
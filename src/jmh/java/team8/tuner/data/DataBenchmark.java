@@ -0,0 +1,77 @@
+package team8.tuner.data;
+
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the logging and live graph calls made every loop.
+ * Writes go to the CSV file in the working directory like they do in simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataBenchmark {
+
+	private static final int kChannelCount = 8;
+
+	private final Channel[] mChannels = new Channel[kChannelCount];
+	private double mValue;
+
+	@Setup
+	public void setup() {
+		HAL.initialize(500, 0);
+		CSVWriter.init();
+		LiveGraph.init(1, false);
+		for (int index = 0; index < kChannelCount; index++) {
+			mChannels[index] = Telemetry.register("benchmark/" + index);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		CSVWriter.write();
+	}
+
+	@Benchmark
+	public void csvAdd() {
+		CSVWriter.add("benchmark", mValue += 0.1);
+	}
+
+	@Benchmark
+	public void csvAddRow() {
+		for (Channel channel : mChannels) channel.set(mValue += 0.1);
+		CSVWriter.addRow();
+	}
+
+	/**
+	 * A full loop of rows followed by a flush, so the write cost is amortized the way it is at the end of a session
+	 */
+	@Benchmark
+	@OperationsPerInvocation(50)
+	public void csvAddRowAndWrite() {
+		for (int row = 0; row < 50; row++) {
+			for (Channel channel : mChannels) channel.set(mValue += 0.1);
+			CSVWriter.addRow();
+		}
+		CSVWriter.write();
+	}
+
+	@Benchmark
+	public void liveGraphAddKey() {
+		LiveGraph.add("benchmark", mValue += 0.1);
+	}
+
+	@Benchmark
+	public void liveGraphAddChannels() {
+		for (Channel channel : mChannels) {
+			channel.set(mValue += 0.1);
+			LiveGraph.add(channel);
+		}
+		LiveGraph.flush();
+	}
+}
@@ -0,0 +1,102 @@
+package team8.tuner;
+
+import edu.wpi.first.wpilibj.XboxController;
+import team8.tuner.data.Channel;
+import team8.tuner.data.Telemetry;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * State of an X-Box controller taken once per loop, either read live or from a recorded session.
+ * Everything is logged under {@code input<id>/}, buttons as the number of presses so far so that no press is lost
+ * or doubled when rows are not one per loop, sticks and D-pad as their current value.
+ */
+class Input {
+
+	enum Button {
+		A, B, X, Y, LEFT_BUMPER, RIGHT_BUMPER, LEFT_STICK, RIGHT_STICK, START, BACK
+	}
+
+	private static final Button[] kButtons = Button.values();
+
+	private final long[] mPressCounts = new long[kButtons.length];
+	private final boolean[] mIsPressed = new boolean[kButtons.length];
+	private final Channel[] mPressChannels = new Channel[kButtons.length];
+	private final Channel mLeftYChannel, mRightYChannel, mPovChannel;
+	private double mLeftY, mRightY;
+	private int mPov = -1;
+
+	Input(int xboxId) {
+		for (Button button : kButtons) {
+			mPressChannels[button.ordinal()] = Telemetry.register(String.format("input%d/%s", xboxId, button.name().toLowerCase(Locale.ROOT)));
+		}
+		mLeftYChannel = Telemetry.register(String.format("input%d/leftY", xboxId));
+		mRightYChannel = Telemetry.register(String.format("input%d/rightY", xboxId));
+		mPovChannel = Telemetry.register(String.format("input%d/pov", xboxId));
+	}
+
+	/**
+	 * Takes the presses since the last loop, which consumes them, and logs the new state.
+	 */
+	void read(XboxController controller) {
+		setPressed(Button.A, controller.getAButtonPressed());
+		setPressed(Button.B, controller.getBButtonPressed());
+		setPressed(Button.X, controller.getXButtonPressed());
+		setPressed(Button.Y, controller.getYButtonPressed());
+		setPressed(Button.LEFT_BUMPER, controller.getLeftBumperPressed());
+		setPressed(Button.RIGHT_BUMPER, controller.getRightBumperPressed());
+		setPressed(Button.LEFT_STICK, controller.getLeftStickButtonPressed());
+		setPressed(Button.RIGHT_STICK, controller.getRightStickButtonPressed());
+		setPressed(Button.START, controller.getStartButtonPressed());
+		setPressed(Button.BACK, controller.getBackButtonPressed());
+		mLeftY = controller.getLeftY();
+		mRightY = controller.getRightY();
+		mPov = controller.getPOV();
+		for (Button button : kButtons) {
+			Robot.logData(mPressChannels[button.ordinal()], mPressCounts[button.ordinal()]);
+		}
+		Robot.logData(mLeftYChannel, mLeftY);
+		Robot.logData(mRightYChannel, mRightY);
+		Robot.logData(mPovChannel, mPov);
+	}
+
+	/**
+	 * Takes the state from the latest recorded value of each channel, a button is pressed when its count went up since the last call.
+	 * Channels missing from the recording read as released and centered.
+	 */
+	void replay(Map<String, Double> recorded) {
+		for (Button button : kButtons) {
+			long pressCount = Math.round(recorded.getOrDefault(mPressChannels[button.ordinal()].getName(), 0.0));
+			mIsPressed[button.ordinal()] = pressCount > mPressCounts[button.ordinal()];
+			mPressCounts[button.ordinal()] = pressCount;
+		}
+		mLeftY = recorded.getOrDefault(mLeftYChannel.getName(), 0.0);
+		mRightY = recorded.getOrDefault(mRightYChannel.getName(), 0.0);
+		mPov = (int) Math.round(recorded.getOrDefault(mPovChannel.getName(), -1.0));
+	}
+
+	private void setPressed(Button button, boolean isPressed) {
+		mIsPressed[button.ordinal()] = isPressed;
+		if (isPressed) mPressCounts[button.ordinal()]++;
+	}
+
+	boolean isPressed(Button button) {
+		return mIsPressed[button.ordinal()];
+	}
+
+	double getLeftY() {
+		return mLeftY;
+	}
+
+	double getRightY() {
+		return mRightY;
+	}
+
+	/**
+	 * @return D-pad angle in degrees, -1 when not pressed
+	 */
+	int getPov() {
+		return mPov;
+	}
+}
@@ -0,0 +1,835 @@
+package team8.tuner;
+
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Solenoid;
+import edu.wpi.first.wpilibj.Timer;
+import team8.tuner.analysis.FeedForwardCharacterizer;
+import team8.tuner.analysis.FrequencyResponse;
+import team8.tuner.analysis.KalmanEstimator;
+import team8.tuner.analysis.RelayAutotuner;
+import team8.tuner.analysis.StepAnalyzer;
+import team8.tuner.analysis.StepAnalyzer.StepResult;
+import team8.tuner.config.C;
+import team8.tuner.config.Config;
+import team8.tuner.config.Config.CsvFormat;
+import team8.tuner.config.Config.SimpleConfig;
+import team8.tuner.config.ConfigWatcher;
+import team8.tuner.controller.*;
+import team8.tuner.controller.Controller.ControlMode;
+import team8.tuner.data.CSVWriter;
+import team8.tuner.data.CanUsage;
+import team8.tuner.data.Channel;
+import team8.tuner.data.Sampler;
+import team8.tuner.data.Telemetry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * One config file worth of controllers, with its own set points, analysis and log channels.
+ * Several can run in the same test mode session, {@link Robot} decides which one each X-Box controller drives.
+ */
+class Mechanism {
+
+	private final String mName, mChannelPrefix;
+	private final Config mConfig;
+	/**
+	 * Decides how and whether anything is logged, the first mechanism of the session
+	 */
+	private Config mSessionConfig;
+	private Controller mMaster;
+	private List<Controller> mSlaves;
+	/**
+	 * Slave currents are read one per loop and summed from here, so many followers do not add up to many reads every loop
+	 */
+	private double[] mSlaveCurrents;
+	private int mNextSlave;
+	private List<Solenoid> mSolenoids;
+	private final CanUsage.Device mSolenoidUsage = CanUsage.register("solenoids");
+	private double mReference;
+	private boolean mAutomaticControl;
+	private boolean mExtendSolenoid, mEnableCompressor = true;
+	private ControlMode mControlMode = ControlMode.DISABLED;
+	/**
+	 * Null when the solenoids have not been set since they were created
+	 */
+	private Boolean mAppliedSolenoidState;
+	private long mLastSolenoidWriteTime;
+	private Channel mTotalControllerCurrent, mMasterCurrent, mReferenceChannel, mOutput, mPosition, mVelocity;
+	/**
+	 * Log code of the control mode, so steps can be told apart from stick input when analyzing logs afterwards
+	 */
+	private Channel mControlModeChannel;
+	/**
+	 * Whether this mechanism had its X-Box controller each loop, only logged when there are several mechanisms
+	 */
+	private Channel mIsBound;
+	/**
+	 * Whether the master channels were read this loop, so outputs can reuse them instead of reading again
+	 */
+	private boolean mIsMasterRead;
+	private Sampler mSampler;
+	private ConfigWatcher mConfigWatcher;
+	private ExecutorService mConfigureExecutor;
+	/**
+	 * Pushing a reloaded config to the master, which blocks on CAN, so it runs on the configure executor and not the robot loop
+	 */
+	private CompletableFuture<Void> mReload;
+	private Config mReloadingConfig;
+	private long mReloadStartTime;
+	private StepAnalyzer mStepAnalyzer;
+	private Channel mRiseTime, mOvershoot, mSettlingTime, mSteadyStateError;
+	private KalmanEstimator mEstimator;
+	private Channel mEstimatedPosition, mEstimatedVelocity, mEstimatedAcceleration;
+	private final List<String> mStepSummary = new ArrayList<>();
+	private RelayAutotuner mAutotuner;
+	/**
+	 * Whether the relay closes around velocity, for mechanisms tuned in velocity control, instead of position
+	 */
+	private boolean mIsVelocityAutotune;
+	private FeedForwardCharacterizer mCharacterizer;
+	private Channel mStaticFf, mVelocityFf, mAccelerationFf, mGravityFf;
+	private int mLastPov = -1;
+	private FrequencyResponse mSweep;
+	private ControlMode mSweepControlMode;
+	private double mSweepExcitation;
+	private final double[] mSample = new double[Sampler.kWidth];
+	private double mStartTime, mLoopPeriod;
+
+	/**
+	 * @param name          Config file name, also used for write back and hot reload
+	 * @param channelPrefix Prepended to every channel name, empty when this is the only mechanism
+	 */
+	Mechanism(String name, Config config, String channelPrefix) {
+		mName = name;
+		mConfig = config;
+		mChannelPrefix = channelPrefix;
+	}
+
+	String getName() {
+		return mName;
+	}
+
+	Config getConfig() {
+		return mConfig;
+	}
+
+	boolean isSampling() {
+		return mSampler != null;
+	}
+
+	/**
+	 * @return Whether the master is being driven, idle mechanisms are only read when it is their turn
+	 */
+	boolean isActive() {
+		return mControlMode != ControlMode.DISABLED;
+	}
+
+	/**
+	 * Registers channels and sets up analysis, package private so benchmarks can drive {@link #periodicData} without hardware.
+	 */
+	void initData(Config sessionConfig, double startTime) {
+		mSessionConfig = sessionConfig;
+		mStartTime = startTime;
+		registerChannels();
+		mStepAnalyzer = new StepAnalyzer(mConfig.master.gains.allowableError, mConfig.stepSettleWindow);
+		mStepSummary.clear();
+		mEstimator = mConfig.estimateState ? new KalmanEstimator(mConfig.estimatorJerkNoise, mConfig.estimatorPositionNoise) : null;
+		mCharacterizer = new FeedForwardCharacterizer(mConfig.characterizeRampRate, mConfig.characterizeStep,
+				mConfig.characterizeTimeout, mConfig.characterizeMinimumVelocity);
+	}
+
+	/**
+	 * Uses already constructed controllers instead of setting them up from the config, for benchmarks.
+	 */
+	void setControllers(Controller master, List<Controller> slaves) {
+		mMaster = master;
+		mSlaves = slaves;
+		mSlaveCurrents = new double[slaves.size()];
+		mNextSlave = 0;
+	}
+
+	void applyConfig(ExecutorService configureExecutor) {
+		mConfigureExecutor = configureExecutor;
+		System.out.printf("Initializing %s with:%n%s%n", mName, mConfig);
+		System.out.printf("Using X-Box controller with id: %d%n", mConfig.xboxId);
+		// Configuring is mostly waiting on blocking CAN calls, so every controller is set up on its own thread
+		long startTime = System.nanoTime();
+		CompletableFuture<Controller> master = CompletableFuture.supplyAsync(() -> setupController(mConfig.master), configureExecutor);
+		List<CompletableFuture<Controller>> slaves = mConfig.slaves.stream()
+				.map(slaveConfig -> CompletableFuture.supplyAsync(() -> setupController(slaveConfig), configureExecutor))
+				.collect(Collectors.toUnmodifiableList());
+		Controller masterController = master.join();
+		setControllers(masterController, IntStream.range(0, slaves.size())
+				.mapToObj(slaveIndex -> followMaster(masterController, slaves.get(slaveIndex).join(), mConfig.slaves.get(slaveIndex)))
+				.collect(Collectors.toUnmodifiableList()));
+		System.out.printf("Set up %d controllers for %s in %.1f ms%n", mSlaves.size() + 1, mName, (System.nanoTime() - startTime) * 1.0e-6);
+		mSolenoids = mConfig.solenoidId.stream().map(solenoidId -> new Solenoid(PneumaticsModuleType.CTREPCM, solenoidId)).collect(Collectors.toUnmodifiableList());
+		mAppliedSolenoidState = null;
+	}
+
+	/**
+	 * Starts the sampler and config watcher once the controllers are set up.
+	 *
+	 * @param loopPeriod        Robot loop period in seconds, the sample period of anything not sampled
+	 * @param isSamplingAllowed False when another mechanism of the session already samples, only one may add rows of its own
+	 */
+	void start(double loopPeriod, boolean isSamplingAllowed) {
+		mLoopPeriod = loopPeriod;
+		logGains();
+		if (mSessionConfig.writeCsv && mConfig.sampleFrequency > 0.0 && isSamplingAllowed) {
+			System.out.printf("Sampling %s master at %.0f Hz%n", mName, mConfig.sampleFrequency);
+			mSampler = new Sampler(mMaster, mConfig.sampleFrequency, mStartTime);
+		}
+		if (mConfig.hotReload) {
+			try {
+				String tableName = mChannelPrefix.isEmpty() ? ConfigWatcher.kTableName : ConfigWatcher.kTableName + "/" + mName;
+				mConfigWatcher = new ConfigWatcher(mConfig, mName, tableName);
+			} catch (IOException watchException) {
+				System.err.println("Failed to watch config, changes will need test mode to be re-entered:");
+				watchException.printStackTrace();
+			}
+		}
+	}
+
+	private void registerChannels() {
+		mTotalControllerCurrent = register("totalControllerCurrent", true);
+		mMasterCurrent = register("masterCurrent", true);
+		mReferenceChannel = register("reference", true);
+		mControlModeChannel = register("controlMode", true);
+		mOutput = register("output", true);
+		mPosition = register("position", true);
+		mVelocity = register("velocity", true);
+		mRiseTime = register("step/riseTime", false);
+		mOvershoot = register("step/overshoot", false);
+		mSettlingTime = register("step/settlingTime", false);
+		mSteadyStateError = register("step/steadyStateError", false);
+		if (mConfig.estimateState) {
+			mEstimatedPosition = register("estimatedPosition", true);
+			mEstimatedVelocity = register("estimatedVelocity", true);
+			mEstimatedAcceleration = register("estimatedAcceleration", true);
+		}
+		mIsBound = mChannelPrefix.isEmpty() ? null : register("isBound", true);
+		mStaticFf = register("characterize/kS", false);
+		mVelocityFf = register("characterize/kV", false);
+		mAccelerationFf = register("characterize/kA", false);
+		mGravityFf = register("characterize/kG", false);
+	}
+
+	private Channel register(String name, boolean isLogged) {
+		return Telemetry.register(mChannelPrefix + name, isLogged);
+	}
+
+	void pollConfig() {
+		if (mReload != null) {
+			// Changes made meanwhile stay in the watcher until this one is done, only the latest of them is pushed
+			if (!mReload.isDone()) return;
+			finishReload();
+		}
+		if (mConfigWatcher != null) {
+			Config reloadedConfig = mConfigWatcher.poll();
+			if (reloadedConfig != null) reloadConfig(reloadedConfig);
+		}
+	}
+
+	/**
+	 * Applies a changed config without rebuilding any controllers. Only the master parameters which changed are sent.
+	 * Controller types, ids and slaves are not reloaded.
+	 */
+	private void reloadConfig(Config config) {
+		if (config.master.id != mConfig.master.id || config.master.type != mConfig.master.type) {
+			System.err.println("Changing the master requires re-entering test mode, ignoring it");
+			config.master.id = mConfig.master.id;
+			config.master.type = mConfig.master.type;
+		}
+		mReloadingConfig = config;
+		mReloadStartTime = System.nanoTime();
+		mReload = CompletableFuture.runAsync(() -> mMaster.reconfigure(config.master), mConfigureExecutor);
+	}
+
+	/**
+	 * Takes on the reloaded config once the master has it. When sending it failed, like on a CAN timeout, the previous config is kept,
+	 * although the master may have taken some of the changed parameters.
+	 */
+	private void finishReload() {
+		Config config = mReloadingConfig;
+		CompletableFuture<Void> reload = mReload;
+		mReload = null;
+		mReloadingConfig = null;
+		try {
+			reload.join();
+		} catch (CompletionException reconfigureException) {
+			System.err.printf("Failed to reload %s, keeping the previous config:%n", mName);
+			reconfigureException.getCause().printStackTrace();
+			return;
+		}
+		if (mStepAnalyzer != null && config.master.gains.allowableError != mConfig.master.gains.allowableError) {
+			// The step in progress is reported with the gains it ran with, later steps use the new tolerance
+			if (mStepAnalyzer.finish()) reportStep();
+			mStepAnalyzer = new StepAnalyzer(config.master.gains.allowableError, mConfig.stepSettleWindow);
+		}
+		mConfig.master = config.master;
+		mConfig.aSetPoint = config.aSetPoint;
+		mConfig.bSetPoint = config.bSetPoint;
+		mConfig.xSetPoint = config.xSetPoint;
+		mConfig.ySetPoint = config.ySetPoint;
+		mConfig.percentOutputRun = config.percentOutputRun;
+		System.out.printf("Reloaded %s in %.1f ms%n", mName, (System.nanoTime() - mReloadStartTime) * 1.0e-6);
+		logGains();
+	}
+
+	/**
+	 * Writes the master gains into a long format log at the start and whenever they are reloaded, so archived logs say what was being tuned.
+	 * They are single rows rather than channels, which would repeat them every loop.
+	 */
+	private void logGains() {
+		if (!mSessionConfig.writeCsv || mSessionConfig.binaryLog || mSessionConfig.csvFormat != CsvFormat.LONG) return;
+		double time = Timer.getFPGATimestamp() - mStartTime;
+		var gains = mConfig.master.gains;
+		CSVWriter.add(mChannelPrefix + "gains/p", time, gains.p);
+		CSVWriter.add(mChannelPrefix + "gains/i", time, gains.i);
+		CSVWriter.add(mChannelPrefix + "gains/d", time, gains.d);
+		CSVWriter.add(mChannelPrefix + "gains/f", time, gains.f);
+		CSVWriter.add(mChannelPrefix + "gains/ff", time, gains.ff);
+		CSVWriter.add(mChannelPrefix + "gains/a", time, gains.a);
+		CSVWriter.add(mChannelPrefix + "gains/v", time, gains.v);
+		CSVWriter.add(mChannelPrefix + "gains/allowableError", time, gains.allowableError);
+	}
+
+	/**
+	 * Reads the master and runs the analysis every loop, logging it when enabled. The caller adds the row unless this is sampling.
+	 *
+	 * @param isScheduled Whether it is this mechanism's turn to be read even when idle
+	 */
+	void periodicData(double time, boolean isScheduled) {
+		mIsMasterRead = false;
+		logData(mReferenceChannel, mReference);
+		logData(mControlModeChannel, mControlMode.getLogCode());
+		if (mSampler != null) {
+			drainSamples();
+			return;
+		}
+		if (!isActive() && !isScheduled) return;
+		if (mSessionConfig.writeCsv) {
+			logData(mTotalControllerCurrent, getTotalControllerCurrent());
+			logData(mMasterCurrent, mMaster.getOutputCurrent());
+		}
+		logData(mOutput, mMaster.getAppliedPercentOutput());
+		logData(mPosition, mMaster.getPosition());
+		logData(mVelocity, mMaster.getVelocity());
+		mIsMasterRead = true;
+		double stepPosition = estimateState(time, mPosition.get());
+		analyzeStep(time, stepPosition);
+		addSweepSample(time, mOutput.get(), mVelocity.get());
+	}
+
+	/**
+	 * Logs a row for each sample taken on the sampler thread since the last loop.
+	 * Channels only updated by the robot loop hold their latest value.
+	 */
+	private void drainSamples() {
+		logData(mTotalControllerCurrent, getTotalControllerCurrent());
+		while (mSampler.poll(mSample)) {
+			logData(mMasterCurrent, mSample[Sampler.kCurrent]);
+			logData(mOutput, mSample[Sampler.kOutput]);
+			logData(mPosition, mSample[Sampler.kPosition]);
+			logData(mVelocity, mSample[Sampler.kVelocity]);
+			mIsMasterRead = true;
+			double stepPosition = estimateState(mSample[Sampler.kTime], mSample[Sampler.kPosition]);
+			Robot.addRow(mSessionConfig, mSample[Sampler.kTime]);
+			analyzeStep(mSample[Sampler.kTime], stepPosition);
+			addSweepSample(mSample[Sampler.kTime], mSample[Sampler.kOutput], mSample[Sampler.kVelocity]);
+		}
+	}
+
+	/**
+	 * Runs the estimator on a position read and logs its state, call before the row is added.
+	 *
+	 * @return Position to analyze steps on, the estimate when estimating
+	 */
+	private double estimateState(double time, double position) {
+		if (mEstimator == null) return position;
+		mEstimator.update(time, position);
+		logData(mEstimatedPosition, mEstimator.getPosition());
+		logData(mEstimatedVelocity, mEstimator.getVelocity());
+		logData(mEstimatedAcceleration, mEstimator.getAcceleration());
+		return mEstimator.getPosition();
+	}
+
+	/**
+	 * Channels always hold the latest reading, since outputs and analysis reuse them, but are only logged when logging is enabled.
+	 */
+	private void logData(Channel channel, double data) {
+		if (mSessionConfig.writeCsv) {
+			Robot.logData(channel, data);
+		} else {
+			channel.set(data);
+		}
+	}
+
+	/**
+	 * Steps only come from the set point buttons, which always use smart motion.
+	 */
+	private void analyzeStep(double time, double position) {
+		if (mControlMode == ControlMode.SMART_MOTION) {
+			if (mStepAnalyzer.update(time, mReference, position)) reportStep();
+		} else {
+			if (mStepAnalyzer.finish()) reportStep();
+			mStepAnalyzer.reset();
+		}
+	}
+
+	private void reportStep() {
+		StepResult result = mStepAnalyzer.getResult();
+		Robot.logData(mRiseTime, result.riseTime);
+		Robot.logData(mOvershoot, result.overshoot);
+		Robot.logData(mSettlingTime, result.settlingTime);
+		Robot.logData(mSteadyStateError, result.steadyStateError);
+		var gains = mConfig.master.gains;
+		var step = String.format("%8.2f %10.3f %10.3f %8.3f %9.1f %8.3f %10.4f %8s  p=%s i=%s d=%s f=%s a=%s v=%s",
+				result.startTime, result.initial, result.target, result.riseTime, result.overshoot, result.settlingTime,
+				result.steadyStateError, result.isSettled, gains.p, gains.i, gains.d, gains.f, gains.a, gains.v);
+		mStepSummary.add(step);
+		System.out.printf("Step %s: %s%n", mName, step);
+	}
+
+	/**
+	 * @return Master current plus the latest current read from each slave, reading the next slave in turn
+	 */
+	private double getTotalControllerCurrent() {
+		if (mSlaveCurrents.length > 0) {
+			mSlaveCurrents[mNextSlave] = mSlaves.get(mNextSlave).getOutputCurrent();
+			mNextSlave = (mNextSlave + 1) % mSlaveCurrents.length;
+		}
+		double current = mMaster.getOutputCurrent();
+		for (double slaveCurrent : mSlaveCurrents) {
+			current += slaveCurrent;
+		}
+		return current;
+	}
+
+	private double readPosition() {
+		return mIsMasterRead ? mPosition.get() : mMaster.getPosition();
+	}
+
+	private double readVelocity() {
+		return mIsMasterRead ? mVelocity.get() : mMaster.getVelocity();
+	}
+
+	private double readAppliedOutput() {
+		return mIsMasterRead ? mOutput.get() : mMaster.getAppliedPercentOutput();
+	}
+
+	void applyOutputs() {
+		if (mMaster != null) {
+			double arbitraryFeedForward;
+			switch (mControlMode) {
+				case PERCENT_OUTPUT:
+				case SMART_MOTION:
+				case SMART_VELOCITY:
+				case AUTOTUNE:
+					arbitraryFeedForward = Controller.getArbitraryFeedForward(mConfig.master, readPosition());
+					break;
+				default:
+					arbitraryFeedForward = 0.0;
+					break;
+			}
+			double reference = mReference;
+			if (mControlMode == ControlMode.AUTOTUNE) {
+				reference = updateAutotune();
+			} else if (mControlMode == ControlMode.CHARACTERIZE) {
+				reference = updateCharacterization();
+			} else if (mSweep != null) {
+				reference = updateSweep();
+			}
+			mMaster.setOutput(mControlMode, reference, arbitraryFeedForward);
+		}
+		if (mSolenoids != null) {
+			long time = System.nanoTime();
+			boolean isKeepAliveDue = (time - mLastSolenoidWriteTime) * 1.0e-9 >= mSessionConfig.outputKeepAlive;
+			if (!Boolean.valueOf(mExtendSolenoid).equals(mAppliedSolenoidState) || isKeepAliveDue) {
+				for (Solenoid solenoid : mSolenoids) {
+					solenoid.set(mExtendSolenoid);
+					mSolenoidUsage.countWrite();
+				}
+				mAppliedSolenoidState = mExtendSolenoid;
+				mLastSolenoidWriteTime = time;
+			}
+		}
+	}
+
+	/**
+	 * Oscillates velocity around the velocity reference when started from velocity control, otherwise position around the set point.
+	 */
+	private void startAutotune() {
+		mIsVelocityAutotune = mControlMode == ControlMode.SMART_VELOCITY;
+		double setPoint, bias = 0.0;
+		if (mIsVelocityAutotune) {
+			setPoint = mReference;
+			// The output holding the current velocity, the arbitrary feed forward is still added on top
+			bias = readAppliedOutput() - Controller.getArbitraryFeedForward(mConfig.master, readPosition());
+		} else {
+			setPoint = mControlMode == ControlMode.SMART_MOTION ? mReference : mMaster.getPosition();
+		}
+		mAutotuner = new RelayAutotuner(setPoint, mConfig.autotuneRelay, mConfig.autotuneHysteresis, bias,
+				mConfig.autotuneCycles, mConfig.autotuneTimeout);
+		mControlMode = ControlMode.AUTOTUNE;
+		mReference = setPoint;
+		mAutomaticControl = true;
+		System.out.printf("Starting relay autotune of %s %s around %f%n", mName, mIsVelocityAutotune ? "velocity" : "position", setPoint);
+	}
+
+	/**
+	 * @return Relay output in percent, feed forward is added on top like in percent output mode
+	 */
+	private double updateAutotune() {
+		double output = mAutotuner.update(Timer.getFPGATimestamp() - mStartTime, mIsVelocityAutotune ? readVelocity() : readPosition());
+		if (mAutotuner.isDone()) {
+			finishAutotune();
+			mControlMode = ControlMode.DISABLED;
+			mAutomaticControl = false;
+			return 0.0;
+		}
+		return output;
+	}
+
+	private void finishAutotune() {
+		if (mAutotuner.isFailed()) {
+			System.err.println("Autotune did not oscillate before timing out, try a larger relay output or smaller hysteresis");
+			return;
+		}
+		RelayAutotuner.Gains gains = mAutotuner.getProposal(mConfig.autotuneRule);
+		double conversion = mIsVelocityAutotune ? mMaster.getVelocityConversion() : mMaster.getPositionConversion();
+		double scale = mMaster.getNativeOutputScale();
+		double p = gains.p * scale, i = gains.i * scale * Controller.kClosedLoopPeriod, d = gains.d * scale / Controller.kClosedLoopPeriod;
+		System.out.printf("Autotune ultimate gain %f percent per unit, ultimate period %f s%n", mAutotuner.getUltimateGain(), mAutotuner.getUltimatePeriod());
+		System.out.printf("%s gains in percent output per mechanism %s unit, seconds: p=%f i=%f d=%f%n",
+				mConfig.autotuneRule, mIsVelocityAutotune ? "velocity" : "position", gains.p / conversion, gains.i / conversion, gains.d / conversion);
+		System.out.printf("%s %s gains native to the controller: p=%f i=%f d=%f%n",
+				mConfig.autotuneRule, mIsVelocityAutotune ? "velocity control" : "smart motion", p, i, d);
+		if (mConfig.autotuneWriteBack) {
+			if (mIsVelocityAutotune) System.out.println("Velocity control and smart motion share one gain slot, writing the velocity gains");
+			// Start from the file so that anything else on disk, like gains changed while running, is kept
+			Config fileConfig = C.read(Config.class, mName);
+			fileConfig.master.gains.p = p;
+			fileConfig.master.gains.i = i;
+			fileConfig.master.gains.d = d;
+			C.write(fileConfig, mName);
+		}
+	}
+
+	/**
+	 * D-pad up and down run quasistatic ramps forward and in reverse, right and left run dynamic steps.
+	 */
+	private void startCharacterization(int pov) {
+		FeedForwardCharacterizer.Test test;
+		boolean isForward;
+		switch (pov) {
+			case 0:
+			case 180:
+				test = FeedForwardCharacterizer.Test.QUASISTATIC;
+				isForward = pov == 0;
+				break;
+			case 90:
+			case 270:
+				test = FeedForwardCharacterizer.Test.DYNAMIC;
+				isForward = pov == 90;
+				break;
+			default:
+				return;
+		}
+		mCharacterizer.start(test, isForward);
+		mControlMode = ControlMode.CHARACTERIZE;
+		mReference = 0.0;
+		mAutomaticControl = true;
+		System.out.printf("Starting %s characterization of %s %s%n", test, mName, isForward ? "forward" : "in reverse");
+	}
+
+	/**
+	 * @return Characterization output in percent, nothing is added on top since the feed forwards are what is being fit
+	 */
+	private double updateCharacterization() {
+		double gravity;
+		switch (mConfig.characterizeGravity) {
+			case ELEVATOR:
+				gravity = 1.0;
+				break;
+			case ARM:
+				// Same angle as the arm feed forward uses, so the fitted gravity term drops straight into it
+				gravity = Math.cos(Math.toRadians(readPosition() - mConfig.master.armComOffset));
+				break;
+			default:
+				gravity = 0.0;
+				break;
+		}
+		double output = mCharacterizer.update(Timer.getFPGATimestamp() - mStartTime, readVelocity(), readAppliedOutput(), gravity);
+		Robot.logData(mStaticFf, mCharacterizer.get(FeedForwardCharacterizer.kStatic));
+		Robot.logData(mVelocityFf, mCharacterizer.get(FeedForwardCharacterizer.kVelocity));
+		Robot.logData(mAccelerationFf, mCharacterizer.get(FeedForwardCharacterizer.kAcceleration));
+		Robot.logData(mGravityFf, mCharacterizer.get(FeedForwardCharacterizer.kGravity));
+		if (!mCharacterizer.isRunning()) {
+			finishCharacterization();
+			mControlMode = ControlMode.DISABLED;
+			mAutomaticControl = false;
+			return 0.0;
+		}
+		return output;
+	}
+
+	private void finishCharacterization() {
+		mCharacterizer.stop();
+		if (mCharacterizer.getSampleCount() == 0L) {
+			System.err.println("Characterization never moved faster than the minimum velocity, try a larger ramp rate or step");
+			return;
+		}
+		double kS = mCharacterizer.get(FeedForwardCharacterizer.kStatic), kV = mCharacterizer.get(FeedForwardCharacterizer.kVelocity);
+		double kA = mCharacterizer.get(FeedForwardCharacterizer.kAcceleration), kG = mCharacterizer.get(FeedForwardCharacterizer.kGravity);
+		FeedForwardCharacterizer.Gravity gravity = mConfig.characterizeGravity;
+		double f = kV * mMaster.getNativeOutputScale();
+		System.out.printf("Characterized %s from %d samples in percent output per native velocity unit: kS=%f kV=%f kA=%f kG=%f%n",
+				mName, mCharacterizer.getSampleCount(), kS, kV, kA, kG);
+		String gravityFf;
+		switch (gravity) {
+			case ELEVATOR:
+				gravityFf = String.format(" ff=%f", kG);
+				break;
+			case ARM:
+				gravityFf = String.format(" armFf=%f", kG);
+				break;
+			default:
+				gravityFf = "";
+				break;
+		}
+		// kS opposes motion in either direction, so it can not go into ff, which pushes the same way regardless
+		System.out.printf("Feed forwards: f=%f%s, kS=%f and kA=%f have no config field%n", f, gravityFf, kS, kA);
+		if (!mCharacterizer.hasBothDirections()) {
+			System.err.println("Only one direction was characterized, kS is not reliable until the other is run as well");
+		}
+		if (mConfig.characterizeWriteBack) {
+			if (!mCharacterizer.hasBothDirections()) {
+				System.err.println("Not writing back until both directions are characterized");
+				return;
+			}
+			Config fileConfig = C.read(Config.class, mName);
+			fileConfig.master.gains.f = f;
+			if (gravity == FeedForwardCharacterizer.Gravity.ELEVATOR) {
+				fileConfig.master.gains.ff = kG;
+			} else if (gravity == FeedForwardCharacterizer.Gravity.ARM) {
+				fileConfig.master.armFf = kG;
+			}
+			C.write(fileConfig, mName);
+		}
+	}
+
+	/**
+	 * Excites percent output, or the velocity reference when closed loop, around the configured offset.
+	 * Samples come from the sampler when it is running, otherwise from the robot loop.
+	 * The excitation is only updated once per robot loop either way, so the loop period sets the highest usable frequency.
+	 */
+	private void startSweep() {
+		double samplePeriod = mSampler == null ? mLoopPeriod : 1.0 / mConfig.sampleFrequency;
+		mSweep = new FrequencyResponse(mConfig.sweepExcitation, mConfig.sweepMinimumFrequency, mConfig.sweepMaximumFrequency,
+				mConfig.sweepFrequencies, mConfig.sweepAmplitude, mConfig.sweepOffset, samplePeriod,
+				mConfig.sweepSettleCycles, mConfig.sweepMeasureCycles, mConfig.sweepChirpDuration);
+		if (mConfig.sweepClosedLoop) {
+			mSweep.setClosedLoop();
+			mSweepControlMode = ControlMode.SMART_VELOCITY;
+		} else {
+			var gains = mConfig.master.gains;
+			mSweep.setController(gains.p, gains.i, gains.d, mMaster.getNativeOutputScale());
+			mSweepControlMode = ControlMode.PERCENT_OUTPUT;
+			System.out.println("Open loop margins assume the master gains are tuned for velocity control, position gains give meaningless margins");
+		}
+		mControlMode = mSweepControlMode;
+		mReference = mConfig.sweepOffset;
+		mSweepExcitation = mConfig.sweepOffset;
+		mAutomaticControl = true;
+		System.out.printf("Starting %s frequency response of %s from %.2f to %.2f Hz sampled at %.0f Hz%n",
+				mConfig.sweepExcitation, mName, mConfig.sweepMinimumFrequency, mConfig.sweepMaximumFrequency, 1.0 / samplePeriod);
+		if (mConfig.sweepMaximumFrequency * 2.0 * mLoopPeriod >= 1.0) {
+			System.err.printf("Maximum sweep frequency is above %.1f Hz, the Nyquist frequency of the robot loop which updates the excitation%n", 0.5 / mLoopPeriod);
+		} else if (mConfig.sweepMaximumFrequency * 2.0 * samplePeriod >= 1.0) {
+			System.err.println("Maximum sweep frequency is above the Nyquist frequency, raise the sample frequency");
+		}
+	}
+
+	private double updateSweep() {
+		mSweepExcitation = mSweep.getExcitation(Timer.getFPGATimestamp() - mStartTime);
+		if (mSweep.isDone()) {
+			finishSweep();
+			mControlMode = ControlMode.DISABLED;
+			mAutomaticControl = false;
+			return 0.0;
+		}
+		return mSweepExcitation;
+	}
+
+	/**
+	 * @param appliedOutput Measured input to the plant, used when the excitation is open loop
+	 */
+	private void addSweepSample(double time, double appliedOutput, double velocity) {
+		if (mSweep != null) {
+			mSweep.addSample(time, mConfig.sweepClosedLoop ? mSweepExcitation : appliedOutput, velocity);
+		}
+	}
+
+	/**
+	 * Prints whatever frequencies were measured, also when the sweep is interrupted.
+	 */
+	private void finishSweep() {
+		System.out.print(mSweep.getSummary());
+		mSweep = null;
+	}
+
+	/**
+	 * Disables outputs and prints the summary of the session, safe to call before the mechanism was set up.
+	 */
+	void stop() {
+		mControlMode = ControlMode.DISABLED;
+		mExtendSolenoid = false;
+		mEnableCompressor = true;
+		if (mSolenoids != null) {
+			mSolenoids.forEach(Solenoid::close);
+		}
+		applyOutputs();
+		if (mCharacterizer != null && mCharacterizer.isRunning()) finishCharacterization();
+		if (mSweep != null) finishSweep();
+		if (mConfigWatcher != null) {
+			mConfigWatcher.close();
+			mConfigWatcher = null;
+		}
+		if (mReload != null) finishReload();
+		if (mSampler != null) {
+			mSampler.close();
+			drainSamples();
+			System.out.printf("Sampler of %s dropped %d samples%n", mName, mSampler.getDroppedCount());
+			mSampler = null;
+		}
+		if (mStepAnalyzer != null) {
+			if (mStepAnalyzer.finish()) reportStep();
+			System.out.printf("Step responses of %s this session:%n%8s %10s %10s %8s %9s %8s %10s %8s  gains%n",
+					mName, "time", "initial", "target", "rise", "overshoot", "settle", "ss error", "settled");
+			mStepSummary.forEach(System.out::println);
+			mStepAnalyzer = null;
+		}
+	}
+
+	/**
+	 * Called instead of {@link #handleInput} while another mechanism has the X-Box controller.
+	 * Set points and tests keep running, anything held on a stick stops.
+	 */
+	void releaseInput() {
+		if (mIsBound != null) Robot.logData(mIsBound, 0.0);
+		mLastPov = -1;
+		if (!mAutomaticControl) {
+			mControlMode = ControlMode.DISABLED;
+		}
+	}
+
+	void handleInput(Input input) {
+		if (mIsBound != null) Robot.logData(mIsBound, 1.0);
+		int pov = input.getPov();
+		boolean isPovPressed = pov != mLastPov && pov != -1;
+		mLastPov = pov;
+		ControlMode lastControlMode = mControlMode;
+		double lastReference = mReference;
+		FrequencyResponse lastSweep = mSweep;
+		if (input.isPressed(Input.Button.A)) {
+			setSetPoint(mConfig.aSetPoint);
+		} else if (input.isPressed(Input.Button.B)) {
+			setSetPoint(mConfig.bSetPoint);
+		} else if (input.isPressed(Input.Button.X)) {
+			setSetPoint(mConfig.xSetPoint);
+		} else if (input.isPressed(Input.Button.Y)) {
+			setSetPoint(mConfig.ySetPoint);
+		} else if (input.isPressed(Input.Button.RIGHT_BUMPER)) {
+			mControlMode = ControlMode.PERCENT_OUTPUT;
+			mReference = mConfig.percentOutputRun + mConfig.master.gains.ff;
+		} else if (input.isPressed(Input.Button.RIGHT_STICK)) {
+			startAutotune();
+		} else if (isPovPressed) {
+			startCharacterization(pov);
+		} else if (input.isPressed(Input.Button.LEFT_STICK)) {
+			startSweep();
+		} else if (input.isPressed(Input.Button.LEFT_BUMPER)) {
+			mControlMode = ControlMode.DISABLED;
+			mAutomaticControl = false;
+			System.out.printf("Disabling %s...%n", mName);
+		} else {
+			double percentOutInput = -input.getLeftY() * Robot.kPercentOutputMultiplier;
+			double velocityInput = -input.getRightY() * Robot.kVelocityMultiplier;
+			if (Math.abs(percentOutInput) > Robot.kDeadBand) {
+				mControlMode = ControlMode.PERCENT_OUTPUT;
+				mReference = percentOutInput - Math.signum(percentOutInput) * Robot.kDeadBand;
+				mAutomaticControl = false;
+			} else if (Math.abs(velocityInput) > Robot.kDeadBand) {
+				mControlMode = ControlMode.SMART_VELOCITY;
+				mReference = (velocityInput - Math.signum(velocityInput) * Robot.kDeadBand) * mConfig.master.gains.v;
+				mAutomaticControl = false;
+			} else {
+				if (!mAutomaticControl) {
+					mControlMode = ControlMode.DISABLED;
+				}
+			}
+		}
+		// Any other command interrupts a running sweep
+		if (mSweep != null && mSweep == lastSweep && (mControlMode != lastControlMode || mReference != lastReference || !mAutomaticControl)) {
+			finishSweep();
+		}
+		if (input.isPressed(Input.Button.START))
+			mExtendSolenoid = !mExtendSolenoid;
+		else if (input.isPressed(Input.Button.BACK))
+			mEnableCompressor = !mEnableCompressor;
+	}
+
+	private void setSetPoint(double setPoint) {
+		mControlMode = ControlMode.SMART_MOTION;
+		mReference = setPoint;
+		mAutomaticControl = true;
+	}
+
+	/**
+	 * Advances the physics of a simulated master by one robot loop.
+	 */
+	void simulate(double period) {
+		if (mMaster instanceof Simulated) {
+			((Simulated) mMaster).step(period);
+		}
+	}
+
+	private static Controller setupController(SimpleConfig config) {
+		System.out.printf("Setting up %s with id %d%n", config.type, config.id);
+		long startTime = System.nanoTime();
+		Controller controller = createController(config);
+		System.out.printf("Set up %s with id %d in %.1f ms%n", config.type, config.id, (System.nanoTime() - startTime) * 1.0e-6);
+		return controller;
+	}
+
+	private static Controller createController(SimpleConfig config) {
+		switch (config.type) {
+			case SPARK:
+				return new Spark(config);
+			case FALCON:
+				return new Falcon(config);
+			case TALON:
+				return new Talon(config);
+			case VICTOR:
+				return new Victor(config);
+			case SIMULATED:
+				return new Simulated(config);
+			default:
+				throw new IllegalArgumentException("Unknown motor type!");
+		}
+	}
+
+	private static Controller followMaster(Controller master, Controller slave, SimpleConfig config) {
+		slave.follow(master, config.isInverted);
+		return slave;
+	}
+}
@@ -0,0 +1,124 @@
+package team8.tuner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import team8.tuner.config.Config;
+import team8.tuner.config.Config.ControllerType;
+import team8.tuner.data.Channel;
+import team8.tuner.data.CsvLogReader;
+import team8.tuner.data.Telemetry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Desktop tool which feeds the X-Box inputs recorded in a session log back through the same input handling, analysis and outputs
+ * as test mode, against the simulated plant of the config in stepped simulation time, so a session replays faster than real time.
+ * Gains given on the command line override the config, to see how a recorded session would have gone with them.
+ * It runs against the simulation JNI libraries like the benchmarks do, since the tuner logic reads the FPGA timer and publishes to the live graph.
+ * <p>
+ * Usage: {@code Replay config.json canlog.csv [output.csv] [gain=value...]}
+ */
+public final class Replay {
+
+	private static final double kLoopPeriod = 0.02;
+
+	private Replay() {
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: Replay <config.json> <canlog.csv> [output.csv] [gain=value...]");
+			System.exit(1);
+		}
+		Path configPath = Paths.get(args[0]);
+		var mapper = new ObjectMapper();
+		Config config = mapper.readValue(configPath.toFile(), Config.class);
+		Path output = null;
+		for (int index = 2; index < args.length; index++) {
+			String[] option = args[index].split("=", 2);
+			if (option.length == 2) {
+				mapper.readerForUpdating(config.master.gains).readValue(String.format("{\"%s\": %s}", option[0], option[1]));
+			} else {
+				output = Paths.get(args[index]);
+			}
+		}
+		// Only the master is simulated, and nothing may touch hardware or the config files
+		config.master.type = ControllerType.SIMULATED;
+		config.slaves = List.of();
+		config.solenoidId = List.of();
+		config.writeCsv = false;
+		config.sampleFrequency = 0.0;
+		config.hotReload = false;
+		config.autotuneWriteBack = false;
+		config.characterizeWriteBack = false;
+		String name = configPath.getFileName().toString().replaceFirst("\\.json$", "");
+
+		HAL.initialize(500, 0);
+		SimHooks.pauseTiming();
+		ExecutorService configureExecutor = Executors.newSingleThreadExecutor();
+		var mechanism = new Mechanism(name, config, "");
+		var input = new Input(config.xboxId);
+		try (var recording = new CsvLogReader(Paths.get(args[1]));
+			 BufferedWriter writer = output == null ? null : Files.newBufferedWriter(output)) {
+			if (recording.isDone()) {
+				System.err.println("Log is empty!");
+				System.exit(1);
+			}
+			double time = recording.getNextTime();
+			mechanism.initData(config, Timer.getFPGATimestamp() - time);
+			mechanism.applyConfig(configureExecutor);
+			mechanism.start(kLoopPeriod, false);
+			Channel reference = Telemetry.register("reference"), position = Telemetry.register("position"),
+					velocity = Telemetry.register("velocity"), appliedOutput = Telemetry.register("output");
+			if (writer != null) {
+				writer.write("time,reference,output,position,velocity,recordedReference,recordedPosition,recordedVelocity");
+				writer.newLine();
+			}
+			String recordedPrefix = null;
+			long loopCount = 0L, startTime = System.nanoTime();
+			while (!recording.isDone()) {
+				// Rows are stamped partway through the loop that produced them, so take anything within half a loop
+				while (!recording.isDone() && recording.getNextTime() < time + kLoopPeriod * 0.5) recording.next();
+				Map<String, Double> recorded = recording.getLatest();
+				if (recordedPrefix == null) {
+					// Logs with several mechanisms prefix their channels with the config name
+					recordedPrefix = recorded.containsKey(name + "/reference") ? name + "/" : "";
+				}
+				input.replay(recorded);
+				if (recorded.getOrDefault(recordedPrefix + "isBound", 1.0) != 0.0) {
+					mechanism.handleInput(input);
+				} else {
+					mechanism.releaseInput();
+				}
+				mechanism.periodicData(time, true);
+				if (writer != null) {
+					writer.write(String.format("%f,%f,%f,%f,%f,%f,%f,%f", time, reference.get(), appliedOutput.get(), position.get(), velocity.get(),
+							recorded.getOrDefault(recordedPrefix + "reference", Double.NaN),
+							recorded.getOrDefault(recordedPrefix + "position", Double.NaN),
+							recorded.getOrDefault(recordedPrefix + "velocity", Double.NaN)));
+					writer.newLine();
+				}
+				mechanism.applyOutputs();
+				mechanism.simulate(kLoopPeriod);
+				SimHooks.stepTiming(kLoopPeriod);
+				time += kLoopPeriod;
+				loopCount++;
+			}
+			mechanism.stop();
+			System.out.printf("Replayed %.1f s in %.1f ms%n", loopCount * kLoopPeriod, (System.nanoTime() - startTime) * 1.0e-6);
+		} finally {
+			configureExecutor.shutdown();
+		}
+		if (output != null) System.out.printf("Wrote replay to %s%n", output);
+	}
+}
@@ -3,49 +3,99 @@ package team8.tuner;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchemaGenerator;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.*;
-import team8.tuner.config.C;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import team8.tuner.config.Config;
-import team8.tuner.config.Config.SimpleConfig;
-import team8.tuner.controller.Controller;
-import team8.tuner.controller.Controller.ControlMode;
-import team8.tuner.controller.Spark;
-import team8.tuner.controller.Talon;
-import team8.tuner.controller.Victor;
-import team8.tuner.controller.*;
+import team8.tuner.config.Config.CsvFormat;
+import team8.tuner.config.ConfigRegistry;
+import team8.tuner.controller.ControllerBase;
+import team8.tuner.data.BinaryLog;
 import team8.tuner.data.CSVWriter;
+import team8.tuner.data.CanUsage;
+import team8.tuner.data.Channel;
 import team8.tuner.data.LiveGraph;
+import team8.tuner.data.LoopProfiler;
+import team8.tuner.data.Telemetry;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class Robot extends TimedRobot {
 
 	//========================================================//
-	public static final String kConfigFileName = "Drive";
+	/**
+	 * Config files run together each session by default, logging settings come from the first.
+	 * Any other config can be picked on its own from the {@link #kChooserKey} chooser without redeploying.
+	 */
+	public static final List<String> kConfigFileNames = List.of("Drive");
 	//========================================================//
 
 	public static final int kPidSlotIndex = 0;
 	public static final double kPercentOutputMultiplier = 0.9, kVelocityMultiplier = 0.9;
 	public static final double kDeadBand = 0.08;
+	/**
+	 * When several mechanisms share an X-Box controller, this NetworkTables entry names the one it drives
+	 */
+	public static final String kSelectorTableName = "tuner", kSelectorKey = "mechanism";
+	public static final String kChooserKey = "Tuner Configs";
+	private static final int kReloadPhase = 0, kInputPhase = 1, kDataPhase = 2, kOutputPhase = 3, kLiveGraphPhase = 4;
+	/**
+	 * Session config, the config of the first mechanism
+	 */
 	private Config mConfig;
-	private Controller mMaster;
-	private List<Controller> mSlaves;
-	private List<Solenoid> mSolenoids;
-	private XboxController mInput;
+	private ConfigRegistry mConfigs;
+	private final SendableChooser<List<String>> mConfigChooser = new SendableChooser<>();
+	private List<Mechanism> mMechanisms = List.of();
+	/**
+	 * Mechanisms grouped by the X-Box controller they are bound to, in config order
+	 */
+	private final Map<XboxController, List<Mechanism>> mInputs = new LinkedHashMap<>();
+	private final Map<XboxController, Mechanism> mBoundMechanisms = new LinkedHashMap<>();
+	private final Map<XboxController, Input> mInputStates = new LinkedHashMap<>();
+	private NetworkTableEntry mSelector;
 	private PowerDistribution mPowerDistribution;
-	private double mReference;
-	private boolean mAutomaticControl;
-	private boolean mExtendSolenoid, mEnableCompressor = true;
-	private ControlMode mControlMode = ControlMode.DISABLED;
 	private Compressor mCompressor;
+	private CanUsage.Device mCompressorUsage;
+	/**
+	 * Null until the compressor has been disabled for the first time
+	 */
+	private Long mLastCompressorWriteTime;
+	private Channel mTotalPdpCurrent;
+	private LoopProfiler mLoopProfiler;
+	private long mLoopCount;
+	private double mStartTime;
+	private final ExecutorService mConfigureExecutor = Executors.newCachedThreadPool(runnable -> {
+		var thread = new Thread(runnable, "Configure");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	@Override
 	public void robotInit() {
 		mCompressor = new Compressor(PneumaticsModuleType.CTREPCM);
+		mCompressorUsage = CanUsage.register("compressor");
 		mPowerDistribution = new PowerDistribution();
+		mSelector = NetworkTableInstance.getDefault().getTable(kSelectorTableName).getEntry(kSelectorKey);
+		mSelector.setDefaultString(kConfigFileNames.get(0));
+		// Names are listed right away so the chooser is only touched here, parsing happens in the background
+		mConfigs = new ConfigRegistry();
+		mConfigs.load(mConfigureExecutor);
+		mConfigChooser.setDefaultOption(String.join(", ", kConfigFileNames), kConfigFileNames);
+		for (String name : mConfigs.getNames()) {
+			if (!kConfigFileNames.equals(List.of(name))) mConfigChooser.addOption(name, List.of(name));
+		}
+		SmartDashboard.putData(kChooserKey, mConfigChooser);
 	}
 
 	@Override
@@ -60,6 +110,13 @@ public class Robot extends TimedRobot {
 		}
 	}
 
+	@Override
+	public void simulationPeriodic() {
+		for (Mechanism mechanism : mMechanisms) {
+			mechanism.simulate(getPeriod());
+		}
+	}
+
 	@Override
 	public void autonomousInit() {
 		scoldUser();
@@ -72,156 +129,186 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void testInit() {
-		CSVWriter.init();
-		mConfig = C.read(Config.class, kConfigFileName);
-		applyConfig();
+		List<String> names = mConfigChooser.getSelected();
+		// Channels are only prefixed when needed, so logs of a single mechanism keep their names
+		boolean isPrefixed = names.size() > 1;
+		initData(names.stream()
+				.map(name -> new Mechanism(name, mConfigs.get(name), isPrefixed ? name + "/" : ""))
+				.collect(Collectors.toUnmodifiableList()));
+		ControllerBase.setKeepAlive(mConfig.outputKeepAlive);
+		bindInputs();
+		// Samples are logged as rows at their own timestamps, so a second sampler would send the log back and forth in time
+		boolean isSampled = false;
+		for (Mechanism mechanism : mMechanisms) {
+			mechanism.applyConfig(mConfigureExecutor);
+			boolean isSamplingAllowed = !isSampled;
+			if (mechanism.getConfig().sampleFrequency > 0.0) {
+				if (isSampled) System.err.printf("Only one mechanism can sample at a time, %s is read each loop%n", mechanism.getName());
+				isSampled = true;
+			}
+			mechanism.start(getPeriod(), isSamplingAllowed);
+		}
+		mLoopProfiler = new LoopProfiler(getPeriod(), "reload", "handleInput", "periodicData", "applyOutputs", "liveGraph");
 		LiveGraph.add("isEnabled", true);
 	}
 
-	private void applyConfig() {
-		System.out.printf("Initializing PID tuner with:%n%s%n", mConfig);
-		mInput = new XboxController(mConfig.xboxId);
-		System.out.printf("Using X-Box controller with id: %d%n", mConfig.xboxId);
-		mMaster = setupController(mConfig.master);
-		mSlaves = mConfig.slaves.stream()
-				.map(slaveConfig -> setupSlave(slaveConfig, mMaster))
-				.collect(Collectors.toUnmodifiableList());
-		mSolenoids = mConfig.solenoidId.stream().map(solenoidId -> new Solenoid(PneumaticsModuleType.CTREPCM, solenoidId)).collect(Collectors.toUnmodifiableList());
+	/**
+	 * Starts logging and step analysis for a session, package private so benchmarks can drive {@link #periodicData()} without hardware.
+	 */
+	void initData(List<Mechanism> mechanisms) {
+		mMechanisms = mechanisms;
+		mConfig = mechanisms.get(0).getConfig();
+		mStartTime = Timer.getFPGATimestamp();
+		mLoopCount = 0L;
+		if (mConfig.binaryLog) {
+			BinaryLog.init(mConfig.binaryLogCapacity);
+		} else {
+			CSVWriter.init(mConfig.backgroundCsv, mConfig.csvFormat == CsvFormat.WIDE, mConfig.compressCsv);
+		}
+		mTotalPdpCurrent = Telemetry.register("totalPdpCurrent");
+		for (Mechanism mechanism : mechanisms) {
+			mechanism.initData(mConfig, mStartTime);
+		}
+		LiveGraph.init(mConfig.liveGraphDecimation, mConfig.flushLiveGraph);
+		mConfig.liveGraphDecimations.forEach((name, decimation) -> LiveGraph.setDecimation(Telemetry.register(name), decimation));
+	}
+
+	/**
+	 * Mechanisms with the same X-Box id share one controller, which drives whichever of them is selected.
+	 */
+	private void bindInputs() {
+		mInputs.clear();
+		mBoundMechanisms.clear();
+		mInputStates.clear();
+		Map<Integer, XboxController> inputsById = new LinkedHashMap<>();
+		for (Mechanism mechanism : mMechanisms) {
+			XboxController input = inputsById.computeIfAbsent(mechanism.getConfig().xboxId, XboxController::new);
+			mInputs.computeIfAbsent(input, key -> new ArrayList<>()).add(mechanism);
+			mInputStates.computeIfAbsent(input, key -> new Input(key.getPort()));
+		}
+		mInputs.forEach((input, mechanisms) -> {
+			if (mechanisms.size() > 1) {
+				System.out.printf("X-Box controller %d is shared by %s, select one with the %s/%s NetworkTables entry%n", input.getPort(),
+						mechanisms.stream().map(Mechanism::getName).collect(Collectors.joining(", ")), kSelectorTableName, kSelectorKey);
+			}
+		});
 	}
 
 	@Override
 	public void testPeriodic() {
+		mLoopProfiler.startLoop();
+		for (Mechanism mechanism : mMechanisms) {
+			mechanism.pollConfig();
+		}
+		mLoopProfiler.endPhase(kReloadPhase);
 		handleInput();
+		mLoopProfiler.endPhase(kInputPhase);
 		periodicData();
+		mLoopProfiler.endPhase(kDataPhase);
 		applyOutputs();
+		mLoopProfiler.endPhase(kOutputPhase);
+		CanUsage.publish(Timer.getFPGATimestamp());
+		LiveGraph.flush();
+		mLoopProfiler.endPhase(kLiveGraphPhase);
+		mLoopProfiler.endLoop();
 	}
 
-	private void periodicData() {
-		if (mConfig.writeCsv) {
-			logData("totalPdpCurrent", mPowerDistribution.getTotalCurrent());
-			logData("totalControllerCurrent", mMaster.getOutputCurrent() + mSlaves.stream().mapToDouble(Controller::getOutputCurrent).sum());
-			logData("reference", mReference);
-			logData("output", mMaster.getAppliedPercentOutput());
-			logData("position", mMaster.getPosition());
-			logData("velocity", mMaster.getVelocity());
+	private void handleInput() {
+		String selected = mInputs.size() < mMechanisms.size() ? mSelector.getString("") : null;
+		for (Map.Entry<XboxController, List<Mechanism>> entry : mInputs.entrySet()) {
+			XboxController input = entry.getKey();
+			List<Mechanism> mechanisms = entry.getValue();
+			Input state = mInputStates.get(input);
+			state.read(input);
+			Mechanism bound = mechanisms.get(0);
+			for (Mechanism mechanism : mechanisms) {
+				if (mechanism.getName().equals(selected)) bound = mechanism;
+			}
+			if (!Objects.equals(mBoundMechanisms.put(input, bound), bound) && mechanisms.size() > 1) {
+				System.out.printf("X-Box controller %d now drives %s%n", input.getPort(), bound.getName());
+			}
+			for (Mechanism mechanism : mechanisms) {
+				if (mechanism == bound) {
+					mechanism.handleInput(state);
+				} else {
+					mechanism.releaseInput();
+				}
+			}
 		}
 	}
 
-	private void logData(String name, double data) {
-		CSVWriter.add(name, data);
-		LiveGraph.add(name, data);
-	}
-
-	private void applyOutputs() {
-		if (mMaster != null) {
-			double arbitraryFeedForward;
-			switch (mControlMode) {
-				case PERCENT_OUTPUT:
-				case SMART_MOTION:
-				case SMART_VELOCITY:
-					arbitraryFeedForward = mConfig.master.gains.ff;
-					if (mConfig.master.armFf != null) {
-						double angle = mMaster.getPosition();
-						arbitraryFeedForward += mConfig.master.armFf * Math.cos(Math.toRadians(angle - mConfig.master.armComOffset));
-					}
-					break;
-				default:
-					arbitraryFeedForward = 0.0;
-					break;
+	/**
+	 * Active mechanisms are read every loop, idle ones take turns so that many motors still fit in the loop period.
+	 */
+	void periodicData() {
+		if (mConfig.writeCsv) logData(mTotalPdpCurrent, mPowerDistribution.getTotalCurrent());
+		double time = Timer.getFPGATimestamp() - mStartTime;
+		int scheduled = (int) (mLoopCount++ % mMechanisms.size());
+		Mechanism sampled = null;
+		for (int index = 0; index < mMechanisms.size(); index++) {
+			Mechanism mechanism = mMechanisms.get(index);
+			if (mechanism.isSampling()) {
+				sampled = mechanism;
+			} else {
+				mechanism.periodicData(time, index == scheduled);
 			}
-			mMaster.setOutput(mControlMode, mReference, arbitraryFeedForward);
 		}
-		if (mSolenoids != null) {
-			for (Solenoid solenoid : mSolenoids) {
-				solenoid.set(mExtendSolenoid);
-			}
+		if (sampled != null) {
+			// Adds a row per sample instead, drained last so its rows carry what the others read this loop
+			sampled.periodicData(time, true);
+		} else if (mConfig.writeCsv) {
+			addRow(mConfig, time);
 		}
-//		if (mEnableCompressor) {
-//			mCompressor.start();
-//		} else {
-//			mCompressor.stop();
-//		}
-		mCompressor.disable();
 	}
 
-	@Override
-	public void disabledInit() {
-		mControlMode = ControlMode.DISABLED;
-		mExtendSolenoid = false;
-		mEnableCompressor = true;
-		if (mSolenoids != null) {
-			mSolenoids.forEach(Solenoid::close);
+	static void addRow(Config sessionConfig, double time) {
+		if (sessionConfig.binaryLog) {
+			BinaryLog.addRow(time);
+		} else {
+			CSVWriter.addRow(time);
 		}
-		applyOutputs();
-		if (mConfig != null && mConfig.writeCsv) CSVWriter.write();
-		LiveGraph.add("isEnabled", false);
 	}
 
-	private void handleInput() {
-		if (mInput.getAButtonPressed()) {
-			setSetPoint(mConfig.aSetPoint);
-		} else if (mInput.getBButtonPressed()) {
-			setSetPoint(mConfig.bSetPoint);
-		} else if (mInput.getXButtonPressed()) {
-			setSetPoint(mConfig.xSetPoint);
-		} else if (mInput.getYButtonPressed()) {
-			setSetPoint(mConfig.ySetPoint);
-		} else if (mInput.getRightBumperPressed()) {
-			mControlMode = ControlMode.PERCENT_OUTPUT;
-			mReference = mConfig.percentOutputRun + mConfig.master.gains.ff;
-		} else if (mInput.getLeftBumperPressed()) {
-			mControlMode = ControlMode.DISABLED;
-			mAutomaticControl = false;
-			System.out.println("Disabling...");
-		} else {
-			double percentOutInput = -mInput.getLeftY() * kPercentOutputMultiplier;
-			double velocityInput = -mInput.getRightY() * kVelocityMultiplier;
-			if (Math.abs(percentOutInput) > kDeadBand) {
-				mControlMode = ControlMode.PERCENT_OUTPUT;
-				mReference = percentOutInput - Math.signum(percentOutInput) * kDeadBand;
-				mAutomaticControl = false;
-			} else if (Math.abs(velocityInput) > kDeadBand) {
-				mControlMode = ControlMode.SMART_VELOCITY;
-				mReference = (velocityInput - Math.signum(velocityInput) * kDeadBand) * mConfig.master.gains.v;
-				mAutomaticControl = false;
-			} else {
-				if (!mAutomaticControl) {
-					mControlMode = ControlMode.DISABLED;
-				}
-			}
-		}
-		if (mInput.getStartButtonPressed())
-			mExtendSolenoid = !mExtendSolenoid;
-		else if (mInput.getBackButtonPressed())
-			mEnableCompressor = !mEnableCompressor;
+	static void logData(Channel channel, double data) {
+		channel.set(data);
+		LiveGraph.add(channel);
 	}
 
-	private void setSetPoint(double setPoint) {
-		mControlMode = ControlMode.SMART_MOTION;
-		mReference = setPoint;
-		mAutomaticControl = true;
+	private void applyOutputs() {
+		for (Mechanism mechanism : mMechanisms) {
+			mechanism.applyOutputs();
+		}
+		disableCompressor();
 	}
 
-	private Controller setupController(SimpleConfig config) {
-		System.out.printf("Setting up %s with id %d%n", config.type, config.id);
-		switch (config.type) {
-			case SPARK:
-				return new Spark(config);
-			case FALCON:
-				return new Falcon(config);
-			case TALON:
-				return new Talon(config);
-			case VICTOR:
-				return new Victor(config);
-			default:
-				throw new IllegalArgumentException("Unknown motor type!");
+	private void disableCompressor() {
+//		if (mEnableCompressor) {
+//			mCompressor.start();
+//		} else {
+//			mCompressor.stop();
+//		}
+		// Resent on the keep alive like other outputs, so a module which reset does not go back to closed loop control
+		long time = System.nanoTime();
+		if (mLastCompressorWriteTime == null || time - mLastCompressorWriteTime >= ControllerBase.getKeepAliveNanoseconds()) {
+			mCompressor.disable();
+			mCompressorUsage.countWrite();
+			mLastCompressorWriteTime = time;
 		}
 	}
 
-	private Controller setupSlave(SimpleConfig config, Controller master) {
-		var slave = setupController(config);
-		slave.follow(master, config.isInverted);
-		return slave;
+	@Override
+	public void disabledInit() {
+		for (Mechanism mechanism : mMechanisms) {
+			mechanism.stop();
+		}
+		disableCompressor();
+		if (mConfig != null && mConfig.writeCsv && !mConfig.binaryLog) CSVWriter.write();
+		if (mLoopProfiler != null) {
+			System.out.print(mLoopProfiler.getSummary());
+			mLoopProfiler = null;
+		}
+		LiveGraph.flush();
+		LiveGraph.add("isEnabled", false);
 	}
 
 	private void scoldUser() {
@@ -0,0 +1,132 @@
+package team8.tuner.analysis;
+
+/**
+ * Drives quasistatic ramps and dynamic steps in percent output while fitting
+ * {@code output = kS sgn(velocity) + kV velocity + kA acceleration + kG gravity} with recursive least squares.
+ * The gravity regressor is supplied by the caller, a constant one for elevators, the cosine of the arm angle or zero without gravity.
+ * The fit is kept across tests so that a quasistatic ramp, which pins down kS, kV and kG, can be followed by a dynamic step for kA.
+ * An elevator, or an arm held near one angle, needs ramps in both directions to tell kS and kG apart, since either alone sees them as one offset.
+ * <p>
+ * Fitted terms are in percent output per unit of the velocity passed in, and per that unit per second for acceleration.
+ */
+public class FeedForwardCharacterizer {
+
+	public enum Gravity {
+		NONE,
+		/**
+		 * Constant pull, like an elevator
+		 */
+		ELEVATOR,
+		/**
+		 * Pull with the cosine of the angle from horizontal, like an arm
+		 */
+		ARM
+	}
+
+	public enum Test {
+		/**
+		 * Output ramps slowly so acceleration is negligible
+		 */
+		QUASISTATIC,
+		/**
+		 * Output steps so acceleration dominates at the start
+		 */
+		DYNAMIC
+	}
+
+	public static final int kStatic = 0, kVelocity = 1, kAcceleration = 2, kGravity = 3;
+	private static final int kParameterCount = 4;
+	private static final double kForgetting = 1.0, kInitialCovariance = 1.0e4;
+
+	private final RecursiveLeastSquares mFit = new RecursiveLeastSquares(kParameterCount, kForgetting, kInitialCovariance);
+	private final double[] mRegressor = new double[kParameterCount];
+	private final double mRampRate, mStepOutput, mTimeout, mMinimumVelocity;
+	private Test mTest;
+	private double mDirection, mStartTime = Double.NaN, mLastTime, mLastVelocity;
+	private boolean mIsRunning, mHasForwardSamples, mHasReverseSamples;
+
+	/**
+	 * @param rampRate        Quasistatic ramp in percent output per second
+	 * @param stepOutput      Dynamic step in percent output
+	 * @param timeout         Seconds each test runs for
+	 * @param minimumVelocity Samples slower than this are skipped since stiction makes the static term unreliable near zero
+	 */
+	public FeedForwardCharacterizer(double rampRate, double stepOutput, double timeout, double minimumVelocity) {
+		mRampRate = Math.abs(rampRate);
+		mStepOutput = Math.abs(stepOutput);
+		mTimeout = timeout;
+		mMinimumVelocity = Math.abs(minimumVelocity);
+	}
+
+	/**
+	 * @param isForward Whether to drive in the positive direction
+	 */
+	public void start(Test test, boolean isForward) {
+		mTest = test;
+		mDirection = isForward ? 1.0 : -1.0;
+		mStartTime = Double.NaN;
+		mIsRunning = true;
+	}
+
+	/**
+	 * Adds a sample measured under the previously returned output.
+	 *
+	 * @param appliedOutput Percent output the controller actually applied
+	 * @param gravity       Regressor for the gravity term
+	 * @return Percent output to apply next, zero once the test is over
+	 */
+	public double update(double time, double velocity, double appliedOutput, double gravity) {
+		if (!mIsRunning) return 0.0;
+		if (Double.isNaN(mStartTime)) {
+			mStartTime = time;
+		} else {
+			double dt = time - mLastTime;
+			if (dt > 0.0 && Math.abs(velocity) >= mMinimumVelocity && velocity != 0.0) {
+				mRegressor[kStatic] = Math.signum(velocity);
+				mRegressor[kVelocity] = velocity;
+				mRegressor[kAcceleration] = (velocity - mLastVelocity) / dt;
+				mRegressor[kGravity] = gravity;
+				mFit.update(mRegressor, appliedOutput);
+				if (velocity > 0.0) {
+					mHasForwardSamples = true;
+				} else {
+					mHasReverseSamples = true;
+				}
+			}
+		}
+		mLastTime = time;
+		mLastVelocity = velocity;
+		double elapsed = time - mStartTime;
+		if (elapsed >= mTimeout) {
+			mIsRunning = false;
+			return 0.0;
+		}
+		return mDirection * (mTest == Test.QUASISTATIC ? Math.min(1.0, mRampRate * elapsed) : mStepOutput);
+	}
+
+	public boolean isRunning() {
+		return mIsRunning;
+	}
+
+	public void stop() {
+		mIsRunning = false;
+	}
+
+	/**
+	 * @param term One of {@link #kStatic}, {@link #kVelocity}, {@link #kAcceleration} or {@link #kGravity}
+	 */
+	public double get(int term) {
+		return mFit.get(term);
+	}
+
+	/**
+	 * @return Whether samples were fit moving both forward and in reverse, which the static term needs to be told apart from an offset
+	 */
+	public boolean hasBothDirections() {
+		return mHasForwardSamples && mHasReverseSamples;
+	}
+
+	public long getSampleCount() {
+		return mFit.getSampleCount();
+	}
+}
@@ -0,0 +1,244 @@
+package team8.tuner.analysis;
+
+import team8.tuner.controller.Controller;
+
+/**
+ * Measures the frequency response from an excitation input to a measured output at log spaced frequencies,
+ * using a pair of {@link Goertzel} accumulators per frequency instead of storing the trace.
+ * <p>
+ * Stepped sines hold each frequency for a number of settling cycles, then accumulate over whole measurement cycles.
+ * A logarithmic chirp sweeps continuously and every frequency accumulates over the whole sweep,
+ * after holding the offset for the settling cycles of the lowest frequency so the step onto the operating point dies out.
+ * <p>
+ * Margins are found from the loop response, which is either the measured closed loop response {@code T} as {@code T / (1 - T)},
+ * or the measured plant multiplied by the onboard PID when the excitation was open loop.
+ */
+public class FrequencyResponse {
+
+	public enum Excitation {
+		STEPPED_SINE, CHIRP
+	}
+
+	private final Excitation mExcitation;
+	private final double[] mFrequencies;
+	private final Goertzel[] mInputs, mOutputs;
+	private final double mAmplitude, mOffset, mSettleCycles, mMeasureCycles, mChirpDuration;
+	private int mActiveIndex;
+	private double mStartTime = Double.NaN, mActiveStartTime;
+	private boolean mIsDone;
+	/**
+	 * Onboard PID in percent output per native unit, for open loop excitation
+	 */
+	private double mP, mI, mD;
+	private boolean mIsClosedLoop;
+
+	/**
+	 * @param amplitude     Size of the sine around the offset, in the units of the excitation
+	 * @param offset        Operating point the sine is centered on
+	 * @param samplePeriod  Seconds between calls to {@link #addSample}, which must be uniform
+	 * @param chirpDuration Seconds the chirp takes to sweep from the lowest to the highest frequency
+	 */
+	public FrequencyResponse(Excitation excitation, double minimumFrequency, double maximumFrequency, int frequencyCount,
+							 double amplitude, double offset, double samplePeriod, int settleCycles, int measureCycles, double chirpDuration) {
+		mExcitation = excitation;
+		int count = Math.max(2, frequencyCount);
+		mFrequencies = new double[count];
+		mInputs = new Goertzel[count];
+		mOutputs = new Goertzel[count];
+		double ratio = maximumFrequency / minimumFrequency;
+		for (int index = 0; index < count; index++) {
+			mFrequencies[index] = minimumFrequency * Math.pow(ratio, index / (count - 1.0));
+			mInputs[index] = new Goertzel();
+			mOutputs[index] = new Goertzel();
+			mInputs[index].reset(mFrequencies[index], samplePeriod);
+			mOutputs[index].reset(mFrequencies[index], samplePeriod);
+		}
+		mAmplitude = amplitude;
+		mOffset = offset;
+		mSettleCycles = settleCycles;
+		mMeasureCycles = Math.max(1, measureCycles);
+		mChirpDuration = chirpDuration;
+	}
+
+	/**
+	 * Open loop excitation, the loop response is the measured plant times this PID as the onboard controller runs it.
+	 * Gains are native to the controller, as in the config, and are taken to close the velocity loop since the plant measured is percent output to velocity.
+	 */
+	public void setController(double p, double i, double d, double nativeOutputScale) {
+		mP = p / nativeOutputScale;
+		mI = i / nativeOutputScale;
+		mD = d / nativeOutputScale;
+		mIsClosedLoop = false;
+	}
+
+	/**
+	 * Closed loop excitation, the excitation is the reference and the measured response is {@code T}.
+	 */
+	public void setClosedLoop() {
+		mIsClosedLoop = true;
+	}
+
+	/**
+	 * @return Excitation to apply at this time, the offset once done
+	 */
+	public double getExcitation(double time) {
+		if (mIsDone) return mOffset;
+		if (Double.isNaN(mStartTime)) {
+			mStartTime = time;
+			mActiveStartTime = time;
+		}
+		double elapsed = time - mStartTime - getLeadIn();
+		double phase;
+		if (mExcitation == Excitation.CHIRP) {
+			if (elapsed < 0.0) return mOffset;
+			if (elapsed >= mChirpDuration) {
+				mIsDone = true;
+				return mOffset;
+			}
+			double minimum = mFrequencies[0], rate = Math.log(mFrequencies[mFrequencies.length - 1] / minimum) / mChirpDuration;
+			phase = 2.0 * Math.PI * minimum * (Math.exp(rate * elapsed) - 1.0) / rate;
+		} else {
+			double frequency = mFrequencies[mActiveIndex];
+			if ((time - mActiveStartTime) * frequency >= mSettleCycles + mMeasureCycles) {
+				if (++mActiveIndex == mFrequencies.length) {
+					mIsDone = true;
+					return mOffset;
+				}
+				mActiveStartTime = time;
+				frequency = mFrequencies[mActiveIndex];
+			}
+			phase = 2.0 * Math.PI * frequency * (time - mActiveStartTime);
+		}
+		return mOffset + mAmplitude * Math.sin(phase);
+	}
+
+	/**
+	 * @param input  Excitation in effect when the sample was taken, or the measured applied output
+	 * @param output Measured response
+	 */
+	public void addSample(double time, double input, double output) {
+		if (mIsDone || Double.isNaN(mStartTime)) return;
+		if (mExcitation == Excitation.CHIRP) {
+			if (time - mStartTime < getLeadIn()) return;
+			for (int index = 0; index < mFrequencies.length; index++) {
+				mInputs[index].add(input);
+				mOutputs[index].add(output);
+			}
+		} else if ((time - mActiveStartTime) * mFrequencies[mActiveIndex] >= mSettleCycles) {
+			mInputs[mActiveIndex].add(input);
+			mOutputs[mActiveIndex].add(output);
+		}
+	}
+
+	private double getLeadIn() {
+		return mExcitation == Excitation.CHIRP ? mSettleCycles / mFrequencies[0] : 0.0;
+	}
+
+	public boolean isDone() {
+		return mIsDone;
+	}
+
+	public int getFrequencyCount() {
+		return mFrequencies.length;
+	}
+
+	public double getFrequency(int index) {
+		return mFrequencies[index];
+	}
+
+	/**
+	 * @return Whether any samples were accumulated at this frequency
+	 */
+	public boolean isMeasured(int index) {
+		return mInputs[index].getCount() > 0;
+	}
+
+	/**
+	 * @return Gain from input to output at this frequency
+	 */
+	public double getMagnitude(int index) {
+		return Math.hypot(getReal(index), getImaginary(index));
+	}
+
+	/**
+	 * @return Phase of output relative to input in degrees, wrapped to plus or minus 180
+	 */
+	public double getPhase(int index) {
+		return Math.toDegrees(Math.atan2(getImaginary(index), getReal(index)));
+	}
+
+	private double getReal(int index) {
+		Goertzel input = mInputs[index], output = mOutputs[index];
+		double inputPower = input.getReal() * input.getReal() + input.getImaginary() * input.getImaginary();
+		return (output.getReal() * input.getReal() + output.getImaginary() * input.getImaginary()) / inputPower;
+	}
+
+	private double getImaginary(int index) {
+		Goertzel input = mInputs[index], output = mOutputs[index];
+		double inputPower = input.getReal() * input.getReal() + input.getImaginary() * input.getImaginary();
+		return (output.getImaginary() * input.getReal() - output.getReal() * input.getImaginary()) / inputPower;
+	}
+
+	/**
+	 * Bode table of the measured and loop responses, followed by the crossover frequency and margins found from the loop response.
+	 * Phases of the loop response are unwrapped from the lowest frequency up, and crossings are interpolated on a log frequency axis.
+	 */
+	public String getSummary() {
+		var summary = new StringBuilder(String.format("%s frequency response, %s:%n", mExcitation,
+				mIsClosedLoop ? "closed loop, loop response is T / (1 - T)" : "open loop, loop response is PID times plant assuming the gains are velocity loop gains"));
+		summary.append(String.format("%10s %12s %10s %12s %10s%n", "hz", "gain dB", "phase", "loop dB", "loop phase"));
+		double crossover = Double.NaN, phaseMargin = Double.NaN, gainMargin = Double.NaN, phaseCrossover = Double.NaN;
+		double lastFrequency = Double.NaN, lastLoopGain = Double.NaN, lastLoopPhase = Double.NaN;
+		for (int index = 0; index < mFrequencies.length; index++) {
+			if (!isMeasured(index)) continue;
+			double frequency = mFrequencies[index], real = getReal(index), imaginary = getImaginary(index);
+			double loopReal, loopImaginary;
+			if (mIsClosedLoop) {
+				// T / (1 - T)
+				double denominatorReal = 1.0 - real, denominatorImaginary = -imaginary;
+				double denominator = denominatorReal * denominatorReal + denominatorImaginary * denominatorImaginary;
+				loopReal = (real * denominatorReal + imaginary * denominatorImaginary) / denominator;
+				loopImaginary = (imaginary * denominatorReal - real * denominatorImaginary) / denominator;
+			} else {
+				// Onboard PID accumulates and differences per closed loop period, evaluated at z = e^(j w T)
+				double angle = 2.0 * Math.PI * frequency * Controller.kClosedLoopPeriod;
+				double differenceReal = 1.0 - Math.cos(angle), differenceImaginary = Math.sin(angle);
+				double differencePower = differenceReal * differenceReal + differenceImaginary * differenceImaginary;
+				double controllerReal = mP + mI * differenceReal / differencePower + mD * differenceReal;
+				double controllerImaginary = -mI * differenceImaginary / differencePower + mD * differenceImaginary;
+				loopReal = controllerReal * real - controllerImaginary * imaginary;
+				loopImaginary = controllerReal * imaginary + controllerImaginary * real;
+			}
+			double loopGain = 20.0 * Math.log10(Math.hypot(loopReal, loopImaginary));
+			double loopPhase = Math.toDegrees(Math.atan2(loopImaginary, loopReal));
+			if (!Double.isNaN(lastLoopPhase)) {
+				while (loopPhase - lastLoopPhase > 180.0) loopPhase -= 360.0;
+				while (loopPhase - lastLoopPhase < -180.0) loopPhase += 360.0;
+			}
+			if (!Double.isNaN(lastFrequency)) {
+				if (Double.isNaN(crossover) && lastLoopGain >= 0.0 && loopGain < 0.0) {
+					double fraction = lastLoopGain / (lastLoopGain - loopGain);
+					crossover = interpolateFrequency(lastFrequency, frequency, fraction);
+					phaseMargin = 180.0 + lastLoopPhase + fraction * (loopPhase - lastLoopPhase);
+				}
+				if (Double.isNaN(phaseCrossover) && lastLoopPhase > -180.0 && loopPhase <= -180.0) {
+					double fraction = (lastLoopPhase + 180.0) / (lastLoopPhase - loopPhase);
+					phaseCrossover = interpolateFrequency(lastFrequency, frequency, fraction);
+					gainMargin = -(lastLoopGain + fraction * (loopGain - lastLoopGain));
+				}
+			}
+			summary.append(String.format("%10.3f %12.2f %10.1f %12.2f %10.1f%n", frequency,
+					20.0 * Math.log10(Math.hypot(real, imaginary)), Math.toDegrees(Math.atan2(imaginary, real)), loopGain, loopPhase));
+			lastFrequency = frequency;
+			lastLoopGain = loopGain;
+			lastLoopPhase = loopPhase;
+		}
+		summary.append(String.format("Crossover %.3f Hz, phase margin %.1f deg, gain margin %.2f dB at %.3f Hz%n",
+				crossover, phaseMargin, gainMargin, phaseCrossover));
+		return summary.toString();
+	}
+
+	private static double interpolateFrequency(double lower, double upper, double fraction) {
+		return lower * Math.pow(upper / lower, fraction);
+	}
+}
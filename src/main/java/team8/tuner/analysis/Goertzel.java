@@ -0,0 +1,66 @@
+package team8.tuner.analysis;
+
+/**
+ * Single frequency bin of a discrete Fourier transform, accumulated one uniformly spaced sample at a time.
+ * The frequency does not need to fall on a whole bin, so the mean of the samples is removed from the result
+ * to keep an operating point from leaking into it.
+ * Results are phased relative to the first sample, so the ratio of two accumulators fed at the same times gives the gain and phase between them.
+ */
+public class Goertzel {
+
+	private double mAngle, mCoefficient;
+	private double mState, mLastState, mSum;
+	private long mCount;
+
+	/**
+	 * @param frequency    Hertz
+	 * @param samplePeriod Seconds between samples
+	 */
+	public void reset(double frequency, double samplePeriod) {
+		mAngle = 2.0 * Math.PI * frequency * samplePeriod;
+		mCoefficient = 2.0 * Math.cos(mAngle);
+		mState = 0.0;
+		mLastState = 0.0;
+		mSum = 0.0;
+		mCount = 0L;
+	}
+
+	public void add(double sample) {
+		double state = sample + mCoefficient * mState - mLastState;
+		mLastState = mState;
+		mState = state;
+		mSum += sample;
+		mCount++;
+	}
+
+	public double getReal() {
+		return getComponent(true);
+	}
+
+	public double getImaginary() {
+		return getComponent(false);
+	}
+
+	/**
+	 * The recursion ends on the phase of the last sample, rotate back to the first,
+	 * then subtract the transform of the mean over the same samples: mean (1 - e^(-j w n)) / (1 - e^(-j w)).
+	 */
+	private double getComponent(boolean isReal) {
+		if (mCount == 0L) return 0.0;
+		double endReal = mState - mLastState * Math.cos(mAngle), endImaginary = mLastState * Math.sin(mAngle);
+		double rotation = -mAngle * (mCount - 1);
+		double real = endReal * Math.cos(rotation) - endImaginary * Math.sin(rotation);
+		double imaginary = endReal * Math.sin(rotation) + endImaginary * Math.cos(rotation);
+		double mean = mSum / mCount;
+		double numeratorReal = 1.0 - Math.cos(mAngle * mCount), numeratorImaginary = Math.sin(mAngle * mCount);
+		double denominatorReal = 1.0 - Math.cos(mAngle), denominatorImaginary = Math.sin(mAngle);
+		double denominator = denominatorReal * denominatorReal + denominatorImaginary * denominatorImaginary;
+		double meanReal = mean * (numeratorReal * denominatorReal + numeratorImaginary * denominatorImaginary) / denominator;
+		double meanImaginary = mean * (numeratorImaginary * denominatorReal - numeratorReal * denominatorImaginary) / denominator;
+		return isReal ? real - meanReal : imaginary - meanImaginary;
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+}
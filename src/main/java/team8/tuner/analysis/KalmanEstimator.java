@@ -0,0 +1,129 @@
+package team8.tuner.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Constant acceleration Kalman filter over position measurements, estimating position, velocity and acceleration.
+ * Acceleration is modeled as driven by white jerk, so the jerk noise trades responsiveness against smoothness.
+ * Handles uneven sample spacing, and all matrices are allocated up front so updates do not allocate.
+ * <p>
+ * Velocity and acceleration are in position units per second and per second squared.
+ */
+public class KalmanEstimator {
+
+	private static final int kSize = 3;
+	private static final double kInitialVariance = 1.0e6;
+
+	private final double mJerkNoise, mMeasurementVariance;
+	private final double[] mState = new double[kSize];
+	private final double[] mCovariance = new double[kSize * kSize];
+	private final double[] mTransition = new double[kSize * kSize], mProduct = new double[kSize * kSize];
+	private double mLastTime = Double.NaN;
+
+	/**
+	 * @param jerkNoise        Spectral density of the jerk driving acceleration, larger follows changes faster
+	 * @param measurementNoise Standard deviation of position measurements
+	 */
+	public KalmanEstimator(double jerkNoise, double measurementNoise) {
+		mJerkNoise = jerkNoise;
+		mMeasurementVariance = measurementNoise * measurementNoise;
+	}
+
+	public void update(double time, double position) {
+		if (Double.isNaN(mLastTime)) {
+			reset(position);
+		} else {
+			double dt = time - mLastTime;
+			if (dt > 0.0) predict(dt);
+		}
+		mLastTime = time;
+		correct(position);
+	}
+
+	private void reset(double position) {
+		mState[0] = position;
+		mState[1] = 0.0;
+		mState[2] = 0.0;
+		Arrays.fill(mCovariance, 0.0);
+		mCovariance[0] = mMeasurementVariance;
+		mCovariance[4] = kInitialVariance;
+		mCovariance[8] = kInitialVariance;
+	}
+
+	/**
+	 * x = F x, P = F P F' + Q
+	 */
+	private void predict(double dt) {
+		double halfSquared = 0.5 * dt * dt;
+		mState[0] += mState[1] * dt + mState[2] * halfSquared;
+		mState[1] += mState[2] * dt;
+		Arrays.fill(mTransition, 0.0);
+		mTransition[0] = 1.0;
+		mTransition[1] = dt;
+		mTransition[2] = halfSquared;
+		mTransition[4] = 1.0;
+		mTransition[5] = dt;
+		mTransition[8] = 1.0;
+		// F P
+		for (int row = 0; row < kSize; row++) {
+			for (int column = 0; column < kSize; column++) {
+				double sum = 0.0;
+				for (int inner = 0; inner < kSize; inner++) {
+					sum += mTransition[row * kSize + inner] * mCovariance[inner * kSize + column];
+				}
+				mProduct[row * kSize + column] = sum;
+			}
+		}
+		// (F P) F'
+		for (int row = 0; row < kSize; row++) {
+			for (int column = 0; column < kSize; column++) {
+				double sum = 0.0;
+				for (int inner = 0; inner < kSize; inner++) {
+					sum += mProduct[row * kSize + inner] * mTransition[column * kSize + inner];
+				}
+				mCovariance[row * kSize + column] = sum;
+			}
+		}
+		double dt2 = dt * dt, dt3 = dt2 * dt, dt4 = dt3 * dt, dt5 = dt4 * dt;
+		mCovariance[0] += mJerkNoise * dt5 / 20.0;
+		mCovariance[1] += mJerkNoise * dt4 / 8.0;
+		mCovariance[2] += mJerkNoise * dt3 / 6.0;
+		mCovariance[3] += mJerkNoise * dt4 / 8.0;
+		mCovariance[4] += mJerkNoise * dt3 / 3.0;
+		mCovariance[5] += mJerkNoise * dt2 / 2.0;
+		mCovariance[6] += mJerkNoise * dt3 / 6.0;
+		mCovariance[7] += mJerkNoise * dt2 / 2.0;
+		mCovariance[8] += mJerkNoise * dt;
+	}
+
+	/**
+	 * Only position is measured, so the gain is the first column of the covariance over its first element plus the measurement variance.
+	 */
+	private void correct(double position) {
+		double innovationVariance = mCovariance[0] + mMeasurementVariance;
+		double innovation = position - mState[0];
+		double gain0 = mCovariance[0] / innovationVariance, gain1 = mCovariance[3] / innovationVariance, gain2 = mCovariance[6] / innovationVariance;
+		mState[0] += gain0 * innovation;
+		mState[1] += gain1 * innovation;
+		mState[2] += gain2 * innovation;
+		double row0 = mCovariance[0], row1 = mCovariance[1], row2 = mCovariance[2];
+		for (int column = 0; column < kSize; column++) {
+			double top = column == 0 ? row0 : column == 1 ? row1 : row2;
+			mCovariance[column] -= gain0 * top;
+			mCovariance[kSize + column] -= gain1 * top;
+			mCovariance[2 * kSize + column] -= gain2 * top;
+		}
+	}
+
+	public double getPosition() {
+		return mState[0];
+	}
+
+	public double getVelocity() {
+		return mState[1];
+	}
+
+	public double getAcceleration() {
+		return mState[2];
+	}
+}
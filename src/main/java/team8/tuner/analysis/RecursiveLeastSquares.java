@@ -0,0 +1,72 @@
+package team8.tuner.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Fits {@code y = x . theta} one sample at a time, with work and memory fixed by the number of parameters instead of the number of samples.
+ * All arrays are allocated up front so updates do not allocate.
+ */
+public class RecursiveLeastSquares {
+
+	private final int mSize;
+	private final double mForgetting, mInitialCovariance;
+	private final double[] mParameters, mCovariance, mCovarianceRegressor;
+	private long mSampleCount;
+
+	/**
+	 * @param size              Number of parameters
+	 * @param forgetting        Weight kept by older samples on each update, one to never forget
+	 * @param initialCovariance Large values trust the first samples more than the zero initial guess
+	 */
+	public RecursiveLeastSquares(int size, double forgetting, double initialCovariance) {
+		mSize = size;
+		mForgetting = forgetting;
+		mInitialCovariance = initialCovariance;
+		mParameters = new double[size];
+		mCovariance = new double[size * size];
+		mCovarianceRegressor = new double[size];
+		reset();
+	}
+
+	public void update(double[] regressor, double measurement) {
+		double denominator = mForgetting, prediction = 0.0;
+		for (int row = 0; row < mSize; row++) {
+			double sum = 0.0;
+			for (int column = 0; column < mSize; column++) {
+				sum += mCovariance[row * mSize + column] * regressor[column];
+			}
+			mCovarianceRegressor[row] = sum;
+			denominator += regressor[row] * sum;
+			prediction += regressor[row] * mParameters[row];
+		}
+		double error = measurement - prediction;
+		for (int row = 0; row < mSize; row++) {
+			mParameters[row] += mCovarianceRegressor[row] / denominator * error;
+		}
+		// The covariance is symmetric, so the regressor times it is the transpose of the covariance times the regressor
+		for (int row = 0; row < mSize; row++) {
+			for (int column = 0; column < mSize; column++) {
+				int index = row * mSize + column;
+				mCovariance[index] = (mCovariance[index] - mCovarianceRegressor[row] * mCovarianceRegressor[column] / denominator) / mForgetting;
+			}
+		}
+		mSampleCount++;
+	}
+
+	public double get(int index) {
+		return mParameters[index];
+	}
+
+	public long getSampleCount() {
+		return mSampleCount;
+	}
+
+	public void reset() {
+		Arrays.fill(mParameters, 0.0);
+		Arrays.fill(mCovariance, 0.0);
+		for (int index = 0; index < mSize; index++) {
+			mCovariance[index * mSize + index] = mInitialCovariance;
+		}
+		mSampleCount = 0L;
+	}
+}
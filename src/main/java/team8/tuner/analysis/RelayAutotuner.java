@@ -0,0 +1,147 @@
+package team8.tuner.analysis;
+
+/**
+ * Astrom-Hagglund relay feedback experiment. Drives the output between bias plus and minus the relay amplitude depending on which
+ * side of the set point the measurement is, which makes the loop oscillate at its ultimate period.
+ * The ultimate gain follows from the relay amplitude and the oscillation amplitude, and gains are proposed from those with a tuning rule.
+ * <p>
+ * Gains are in percent output per unit of measurement with time in seconds, see {@link #getProposal}.
+ */
+public class RelayAutotuner {
+
+	public enum Rule {
+		ZIEGLER_NICHOLS(0.6, 0.5, 0.125),
+		SOME_OVERSHOOT(0.33, 0.5, 0.33),
+		NO_OVERSHOOT(0.2, 0.5, 0.33),
+		TYREUS_LUYBEN(0.45, 2.2, 1.0 / 6.3);
+
+		/**
+		 * Proportional gain as a fraction of the ultimate gain, integral and derivative time as fractions of the ultimate period
+		 */
+		private final double mGainFactor, mIntegralFactor, mDerivativeFactor;
+
+		Rule(double gainFactor, double integralFactor, double derivativeFactor) {
+			mGainFactor = gainFactor;
+			mIntegralFactor = integralFactor;
+			mDerivativeFactor = derivativeFactor;
+		}
+	}
+
+	public static class Gains {
+		public double p, i, d;
+	}
+
+	/**
+	 * Oscillation periods skipped while the response settles into a limit cycle
+	 */
+	private static final int kWarmUpCycles = 2;
+
+	private final double mSetPoint, mAmplitude, mHysteresis, mBias, mTimeout;
+	private final int mCycles;
+	private double mStartTime = Double.NaN, mOutput, mLastRiseTime = Double.NaN;
+	private double mCycleMax = Double.NEGATIVE_INFINITY, mCycleMin = Double.POSITIVE_INFINITY;
+	private double mPeriodSum, mAmplitudeSum;
+	private int mCompletedCycles;
+	private boolean mIsDone, mIsFailed;
+
+	/**
+	 * @param setPoint   Measurement to oscillate around
+	 * @param amplitude  Relay output either side of the bias, in percent output
+	 * @param hysteresis Error band around the set point in which the relay holds its last output, should be above the measurement noise
+	 * @param bias       Output which holds the mechanism near the set point, for example a gravity feed forward
+	 * @param cycles     Oscillation periods to average over once warmed up
+	 * @param timeout    Seconds to wait for the oscillation before giving up
+	 */
+	public RelayAutotuner(double setPoint, double amplitude, double hysteresis, double bias, int cycles, double timeout) {
+		mSetPoint = setPoint;
+		mAmplitude = Math.abs(amplitude);
+		mHysteresis = Math.abs(hysteresis);
+		mBias = bias;
+		mCycles = Math.max(1, cycles);
+		mTimeout = timeout;
+	}
+
+	/**
+	 * @return Output to apply in percent, the bias once the experiment is over
+	 */
+	public double update(double time, double measurement) {
+		if (Double.isNaN(mStartTime)) {
+			mStartTime = time;
+			mOutput = measurement < mSetPoint ? mAmplitude : -mAmplitude;
+		}
+		if (mIsDone) return mBias;
+		if (time - mStartTime > mTimeout) {
+			mIsDone = true;
+			mIsFailed = true;
+			return mBias;
+		}
+		mCycleMax = Math.max(mCycleMax, measurement);
+		mCycleMin = Math.min(mCycleMin, measurement);
+		double error = mSetPoint - measurement;
+		if (error > mHysteresis && mOutput < 0.0) {
+			mOutput = mAmplitude;
+			onRise(time);
+		} else if (error < -mHysteresis && mOutput > 0.0) {
+			mOutput = -mAmplitude;
+		}
+		return mBias + mOutput;
+	}
+
+	/**
+	 * Each switch to positive output starts a new period of the oscillation.
+	 */
+	private void onRise(double time) {
+		if (!Double.isNaN(mLastRiseTime)) {
+			int cycle = mCompletedCycles++;
+			if (cycle >= kWarmUpCycles) {
+				mPeriodSum += time - mLastRiseTime;
+				mAmplitudeSum += (mCycleMax - mCycleMin) * 0.5;
+				if (cycle + 1 - kWarmUpCycles >= mCycles) mIsDone = true;
+			}
+		}
+		mLastRiseTime = time;
+		mCycleMax = Double.NEGATIVE_INFINITY;
+		mCycleMin = Double.POSITIVE_INFINITY;
+	}
+
+	public boolean isDone() {
+		return mIsDone;
+	}
+
+	/**
+	 * @return Whether the experiment timed out before oscillating for enough cycles
+	 */
+	public boolean isFailed() {
+		return mIsFailed;
+	}
+
+	/**
+	 * @return Ultimate period in seconds
+	 */
+	public double getUltimatePeriod() {
+		return mPeriodSum / getMeasuredCycles();
+	}
+
+	/**
+	 * @return Ultimate gain in percent output per unit of measurement
+	 */
+	public double getUltimateGain() {
+		double oscillation = mAmplitudeSum / getMeasuredCycles();
+		// With hysteresis the relay switches late, which shows up as a smaller effective oscillation
+		double effectiveOscillation = Math.sqrt(Math.max(oscillation * oscillation - mHysteresis * mHysteresis, 0.0));
+		return 4.0 * mAmplitude / (Math.PI * (effectiveOscillation > 0.0 ? effectiveOscillation : oscillation));
+	}
+
+	public Gains getProposal(Rule rule) {
+		double ultimateGain = getUltimateGain(), ultimatePeriod = getUltimatePeriod();
+		var gains = new Gains();
+		gains.p = rule.mGainFactor * ultimateGain;
+		gains.i = gains.p / (rule.mIntegralFactor * ultimatePeriod);
+		gains.d = gains.p * rule.mDerivativeFactor * ultimatePeriod;
+		return gains;
+	}
+
+	private int getMeasuredCycles() {
+		return Math.max(1, mCompletedCycles - kWarmUpCycles);
+	}
+}
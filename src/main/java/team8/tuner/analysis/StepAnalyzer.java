@@ -0,0 +1,156 @@
+package team8.tuner.analysis;
+
+/**
+ * Measures step responses one sample at a time with constant memory.
+ * A step starts whenever the reference changes, and is complete once the measurement has stayed within tolerance
+ * of the reference for the settle window, or when the next step starts.
+ */
+public class StepAnalyzer {
+
+	/**
+	 * Reused between steps, copy anything that needs to be kept
+	 */
+	public static class StepResult {
+		public double startTime, initial, target;
+		/**
+		 * Time from ten to ninety percent of the step in seconds, NaN if it never got there
+		 */
+		public double riseTime;
+		/**
+		 * Peak past the target as a percentage of the step size
+		 */
+		public double overshoot;
+		/**
+		 * Time from the start of the step until it last entered the tolerance band in seconds, NaN if it never settled
+		 */
+		public double settlingTime;
+		/**
+		 * Mean of target minus measurement over the settle window, or the last error if it never settled
+		 */
+		public double steadyStateError;
+		public boolean isSettled;
+
+		public StepResult copy() {
+			var copy = new StepResult();
+			copy.set(this);
+			return copy;
+		}
+
+		public void set(StepResult other) {
+			startTime = other.startTime;
+			initial = other.initial;
+			target = other.target;
+			riseTime = other.riseTime;
+			overshoot = other.overshoot;
+			settlingTime = other.settlingTime;
+			steadyStateError = other.steadyStateError;
+			isSettled = other.isSettled;
+		}
+	}
+
+	/**
+	 * Used when the configured tolerance is zero, as a fraction of the step size
+	 */
+	private static final double kDefaultToleranceFraction = 0.02;
+	private static final double kRiseStart = 0.1, kRiseEnd = 0.9;
+
+	private final double mTolerance, mSettleWindow;
+	/**
+	 * Step in progress and the last completed step, kept apart so starting a step does not overwrite the one it completed
+	 */
+	private final StepResult mStep = new StepResult(), mResult = new StepResult();
+	private boolean mIsActive;
+	private double mLastReference = Double.NaN;
+	private double mBand, mRiseStartTime, mPeakProgress, mLastOutsideTime, mLastError;
+	private double mErrorSum;
+	private int mErrorCount;
+
+	/**
+	 * @param tolerance    Allowed error to count as settled, zero to use two percent of each step
+	 * @param settleWindow Seconds the measurement must stay within tolerance to be settled
+	 */
+	public StepAnalyzer(double tolerance, double settleWindow) {
+		mTolerance = tolerance;
+		mSettleWindow = settleWindow;
+	}
+
+	/**
+	 * @return Whether a step completed on this sample, its result is then available from {@link #getResult()}
+	 */
+	public boolean update(double time, double reference, double measurement) {
+		boolean isCompleted = false;
+		if (reference != mLastReference) {
+			isCompleted = finish();
+			start(time, reference, measurement);
+		}
+		if (!mIsActive) return isCompleted;
+		double step = mStep.target - mStep.initial;
+		double progress = (measurement - mStep.initial) / step;
+		if (Double.isNaN(mRiseStartTime) && progress >= kRiseStart) mRiseStartTime = time;
+		if (Double.isNaN(mStep.riseTime) && progress >= kRiseEnd) mStep.riseTime = time - mRiseStartTime;
+		mPeakProgress = Math.max(mPeakProgress, progress);
+		mLastError = mStep.target - measurement;
+		if (Math.abs(mLastError) > mBand) {
+			mLastOutsideTime = time;
+			mErrorSum = 0.0;
+			mErrorCount = 0;
+		} else {
+			mErrorSum += mLastError;
+			mErrorCount++;
+			if (!Double.isNaN(mStep.riseTime) && time - mLastOutsideTime >= mSettleWindow) {
+				mStep.isSettled = true;
+				mStep.settlingTime = mLastOutsideTime - mStep.startTime;
+				return finish() || isCompleted;
+			}
+		}
+		return isCompleted;
+	}
+
+	/**
+	 * Completes the current step early, for example when leaving closed loop control.
+	 *
+	 * @return Whether there was a step in progress
+	 */
+	public boolean finish() {
+		if (!mIsActive) return false;
+		mIsActive = false;
+		mStep.overshoot = Math.max(0.0, mPeakProgress - 1.0) * 100.0;
+		mStep.steadyStateError = mStep.isSettled ? mErrorSum / mErrorCount : mLastError;
+		mResult.set(mStep);
+		return true;
+	}
+
+	/**
+	 * Forgets the current step without completing it.
+	 */
+	public void reset() {
+		mIsActive = false;
+		mLastReference = Double.NaN;
+	}
+
+	public StepResult getResult() {
+		return mResult;
+	}
+
+	private void start(double time, double reference, double measurement) {
+		mLastReference = reference;
+		mStep.startTime = time;
+		mStep.initial = measurement;
+		mStep.target = reference;
+		double stepSize = Math.abs(reference - measurement);
+		// A change too small to tell apart from noise is not a step, wait for the next reference change
+		mBand = mTolerance > 0.0 ? mTolerance : stepSize * kDefaultToleranceFraction;
+		mIsActive = stepSize > mBand;
+		mStep.riseTime = Double.NaN;
+		mStep.settlingTime = Double.NaN;
+		mStep.overshoot = 0.0;
+		mStep.steadyStateError = Double.NaN;
+		mStep.isSettled = false;
+		mRiseStartTime = Double.NaN;
+		mPeakProgress = 0.0;
+		mLastOutsideTime = time;
+		mLastError = reference - measurement;
+		mErrorSum = 0.0;
+		mErrorCount = 0;
+	}
+}
@@ -1,13 +1,18 @@
 package team8.tuner.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.RobotBase;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Config storage using JSON
@@ -20,7 +25,12 @@ public class C {
 	private static final Path kConfigPath = RobotBase.isReal()
 			? Paths.get(Filesystem.getDeployDirectory().toString(), kConfigFolderName)
 			: Paths.get(Filesystem.getLaunchDirectory().toString(), "src", "main", "deploy", kConfigFolderName);
-	private static ObjectMapper sMapper = new ObjectMapper();
+	/**
+	 * Shared since mappers are thread safe once configured and expensive to make
+	 */
+	private static final ObjectMapper sMapper = new ObjectMapper();
+	private static final ObjectWriter sPrettyWriter = sMapper.writerWithDefaultPrettyPrinter();
+	private static final String kExtension = ".json";
 
 	private C() {
 	}
@@ -41,7 +51,51 @@ public class C {
 		}
 	}
 
-	private static File getFileForConfig(String fileName) {
-		return Paths.get(kConfigPath.toString(), String.format("%s.json", fileName)).toFile();
+	public static void write(ConfigBase config, String fileName) {
+		File configFile = getFileForConfig(fileName);
+		try {
+			sPrettyWriter.writeValue(configFile, config);
+			System.out.printf("Wrote config to %s%n", configFile);
+		} catch (IOException writeException) {
+			System.err.printf("An error occurred trying to write config to %s%n", configFile);
+			writeException.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return Deep copy made by round tripping through the JSON tree model
+	 */
+	public static <T extends ConfigBase> T copy(T config) {
+		@SuppressWarnings("unchecked") var configClass = (Class<T>) config.getClass();
+		return sMapper.convertValue(config, configClass);
+	}
+
+	/**
+	 * @return Names of every config file, without the extension, sorted
+	 */
+	public static List<String> getConfigNames() {
+		try (Stream<Path> files = Files.list(kConfigPath)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(fileName -> fileName.endsWith(kExtension))
+					.map(fileName -> fileName.substring(0, fileName.length() - kExtension.length()))
+					.sorted()
+					.collect(Collectors.toUnmodifiableList());
+		} catch (IOException listException) {
+			System.err.printf("An error occurred trying to list configs in %s%n", kConfigPath);
+			listException.printStackTrace();
+			return List.of();
+		}
+	}
+
+	static ObjectWriter getPrettyWriter() {
+		return sPrettyWriter;
+	}
+
+	static Path getConfigPath() {
+		return kConfigPath;
+	}
+
+	static File getFileForConfig(String fileName) {
+		return Paths.get(kConfigPath.toString(), fileName + kExtension).toFile();
 	}
 }
\ No newline at end of file
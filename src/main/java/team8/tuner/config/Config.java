@@ -1,12 +1,34 @@
 package team8.tuner.config;
 
+import team8.tuner.analysis.FeedForwardCharacterizer;
+import team8.tuner.analysis.FrequencyResponse;
+import team8.tuner.analysis.RelayAutotuner;
+import team8.tuner.sim.Motor;
+import team8.tuner.sim.Plant;
+
 import java.util.List;
+import java.util.Map;
 
 @SuppressWarnings("squid:ClassVariableVisibilityCheck")
 public class Config extends ConfigBase {
 
 	public enum ControllerType {
-		SPARK, FALCON, TALON, VICTOR
+		SPARK, FALCON, TALON, VICTOR,
+		/**
+		 * Physics model of the plant in {@link MasterConfig#plant}, for tuning without a robot
+		 */
+		SIMULATED
+	}
+
+	public enum CsvFormat {
+		/**
+		 * One {@code key,time,value} row per channel per loop
+		 */
+		LONG,
+		/**
+		 * Header of channel names then one {@code time,values...} row per loop
+		 */
+		WIDE
 	}
 
 	public static class SmartGains {
@@ -18,9 +40,51 @@ public class Config extends ConfigBase {
 		public int id;
 		public boolean isInverted, isSensorInverted;
 		public boolean isBraked = true;
+		/**
+		 * How often the controller sends applied output and faults, and position, velocity and current, in milliseconds.
+		 * Followers are throttled by default since nothing reads them.
+		 */
+		public int generalStatusPeriodMs = 100, feedbackStatusPeriodMs = 250;
+	}
+
+	public static class PlantConfig {
+		public Plant.Type type = Plant.Type.FLYWHEEL;
+		public Motor motor = Motor.NEO;
+		public int motorCount = 1;
+		/**
+		 * Motor rotations per output rotation
+		 */
+		public double gearing = 1.0;
+		/**
+		 * Kilogram square meters at the output, for arms zero means a uniform rod of the mass and length
+		 */
+		public double moi = 0.002;
+		/**
+		 * Kilograms and meters
+		 */
+		public double mass = 5.0, length = 0.5, drumRadius = 0.02;
+		/**
+		 * Hard stops in output rotations
+		 */
+		public Double minimumRotations, maximumRotations;
+		/**
+		 * Whether the sensor turns with the output, like an encoder on an arm pivot. Otherwise it is on the motor like the integrated
+		 * sensors of the falcon and spark, so native units are per motor rotation and the conversions need to account for the gearing.
+		 */
+		public boolean isSensorOnOutput;
+		/**
+		 * Controller whose units, closed loop and profile are emulated, defaults to the spark
+		 */
+		public ControllerType emulate = ControllerType.SPARK;
 	}
 
 	public static class MasterConfig extends SimpleConfig {
+
+		public MasterConfig() {
+			generalStatusPeriodMs = 10;
+			feedbackStatusPeriodMs = 10;
+		}
+
 		public SmartGains gains = new SmartGains();
 		public Double armFf;
 		public double ramp;
@@ -30,13 +94,93 @@ public class Config extends ConfigBase {
 		public double minimumOutput = -1.0, maximumOutput = 1.0;
 		public double startingPosition;
 		public Float forwardLimit, reverseLimit;
+		public PlantConfig plant = new PlantConfig();
 	}
 
 	public MasterConfig master;
 	public List<SimpleConfig> slaves = List.of();
 	public List<Integer> solenoidId = List.of();
 	public int xboxId;
-	public boolean writeCsv = true;
+	public boolean writeCsv = true, backgroundCsv = true;
+	public CsvFormat csvFormat = CsvFormat.LONG;
+	/**
+	 * Deflate each flushed block of the CSV into {@code canlog.csv.z}, decompress with {@code CompressedCsvConverter}.
+	 * Blocks are only synced to disk as they are written with {@link #backgroundCsv}.
+	 */
+	public boolean compressCsv;
+	/**
+	 * Log to a fixed size binary ring file instead of CSV, convert afterwards with {@code BinaryLogConverter}
+	 */
+	public boolean binaryLog;
+	public int binaryLogCapacity = 1 << 16;
+	/**
+	 * Publish live graph channels every this many loops, per channel overrides are keyed by channel name
+	 */
+	public int liveGraphDecimation = 1;
+	public Map<String, Integer> liveGraphDecimations = Map.of();
+	public boolean flushLiveGraph;
+	/**
+	 * Seconds after which unchanged controller outputs and solenoids are sent again, they are otherwise only sent on change
+	 */
+	public double outputKeepAlive = 0.1;
+	/**
+	 * Read the master on a separate thread at this rate in hertz instead of once per robot loop, zero to disable
+	 */
+	public double sampleFrequency;
+	/**
+	 * Push changes to the master gains from the config file or NetworkTables while test mode is running
+	 */
+	public boolean hotReload = true;
+	/**
+	 * Seconds a step response has to stay within the master allowable error to count as settled
+	 */
+	public double stepSettleWindow = 0.5;
+	/**
+	 * Estimate position, velocity and acceleration with a Kalman filter over the master position, and analyze steps on the estimate.
+	 * Jerk noise is the spectral density of the jerk driving acceleration, position noise is the standard deviation of a position read.
+	 */
+	public boolean estimateState;
+	public double estimatorJerkNoise = 1.0e4, estimatorPositionNoise = 1.0;
+	/**
+	 * Relay output either side of the feed forward in percent, and error band where the relay holds,
+	 * in position units or in velocity units when autotuning from velocity control
+	 */
+	public double autotuneRelay = 0.2, autotuneHysteresis;
+	public int autotuneCycles = 4;
+	public double autotuneTimeout = 20.0;
+	public RelayAutotuner.Rule autotuneRule = RelayAutotuner.Rule.SOME_OVERSHOOT;
+	/**
+	 * Write the proposed gains back into the config file once the autotune finishes
+	 */
+	public boolean autotuneWriteBack;
+	/**
+	 * Quasistatic ramp in percent output per second, dynamic step in percent output and seconds each test runs
+	 */
+	public double characterizeRampRate = 0.05, characterizeStep = 0.4, characterizeTimeout = 8.0;
+	/**
+	 * Velocity in native units below which characterization samples are skipped
+	 */
+	public double characterizeMinimumVelocity;
+	/**
+	 * What gravity pulls on, the fitted kG is written to {@code ff} for an elevator and {@code armFf} for an arm
+	 */
+	public FeedForwardCharacterizer.Gravity characterizeGravity = FeedForwardCharacterizer.Gravity.NONE;
+	/**
+	 * Write the fitted feed forwards back into the config file after each characterization test, once both directions have been run
+	 */
+	public boolean characterizeWriteBack;
+	/**
+	 * Frequency response measured at log spaced frequencies in hertz, the master is read at the sample frequency when sampling
+	 */
+	public FrequencyResponse.Excitation sweepExcitation = FrequencyResponse.Excitation.STEPPED_SINE;
+	public double sweepMinimumFrequency = 0.5, sweepMaximumFrequency = 10.0;
+	public int sweepFrequencies = 12, sweepSettleCycles = 2, sweepMeasureCycles = 4;
+	public double sweepChirpDuration = 30.0;
+	/**
+	 * Excite the velocity reference instead of percent output, the amplitude and offset are then in native velocity units
+	 */
+	public boolean sweepClosedLoop;
+	public double sweepAmplitude = 0.1, sweepOffset = 0.3;
 	public double aSetPoint, bSetPoint, xSetPoint, ySetPoint;
 	public double percentOutputRun = 0.6;
 }
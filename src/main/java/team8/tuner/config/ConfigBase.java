@@ -1,7 +1,5 @@
 package team8.tuner.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import java.io.IOException;
 
 public abstract class ConfigBase {
@@ -9,7 +7,7 @@ public abstract class ConfigBase {
 	@Override
 	public String toString() {
 		try {
-			return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(this);
+			return C.getPrettyWriter().writeValueAsString(this);
 		} catch (IOException exception) {
 			exception.printStackTrace();
 			return super.toString();
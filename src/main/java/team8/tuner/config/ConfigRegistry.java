@@ -0,0 +1,118 @@
+package team8.tuner.config;
+
+import team8.tuner.config.Config.ControllerType;
+import team8.tuner.sim.Plant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Every config in the config directory, parsed and validated ahead of time so that starting test mode does not wait on it.
+ * A config whose file changed since it was parsed, like after a write back, is parsed again when it is next asked for.
+ */
+public class ConfigRegistry {
+
+	private static class Entry {
+
+		private final Config mConfig;
+		private final long mLastModified;
+
+		private Entry(Config config, long lastModified) {
+			mConfig = config;
+			mLastModified = lastModified;
+		}
+	}
+
+	private final List<String> mNames = C.getConfigNames();
+	private final Map<String, Entry> mEntries = new ConcurrentHashMap<>();
+
+	/**
+	 * @return Names of every config file, found when the registry was made
+	 */
+	public List<String> getNames() {
+		return mNames;
+	}
+
+	/**
+	 * Parses every config in the background. Invalid configs are reported and left out.
+	 */
+	public CompletableFuture<Void> load(Executor executor) {
+		return CompletableFuture.runAsync(() -> {
+			long startTime = System.nanoTime();
+			int validCount = 0;
+			for (String name : mNames) {
+				try {
+					parse(name);
+					validCount++;
+				} catch (IllegalArgumentException invalidException) {
+					// Already reported, it fails again if it is selected
+				}
+			}
+			// Builds the serializers that copying needs, so the first copy on enable does not pay for them
+			mEntries.values().stream().findAny().ifPresent(entry -> C.copy(entry.mConfig));
+			System.out.printf("Preloaded %d of %d configs in %.1f ms%n", validCount, mNames.size(), (System.nanoTime() - startTime) * 1.0e-6);
+		}, executor);
+	}
+
+	/**
+	 * @return Copy of the config, which the caller is free to change, parsed now only if it was not preloaded or its file changed
+	 * @throws IllegalArgumentException When the config is missing or invalid
+	 */
+	public Config get(String name) {
+		Entry entry = mEntries.get(name);
+		if (entry == null || entry.mLastModified != C.getFileForConfig(name).lastModified()) {
+			entry = parse(name);
+		}
+		return C.copy(entry.mConfig);
+	}
+
+	private Entry parse(String name) {
+		File file = C.getFileForConfig(name);
+		// Taken before reading so that a save partway through is picked up next time
+		long lastModified = file.lastModified();
+		Config config = C.read(Config.class, name);
+		List<String> problems = validate(config);
+		if (!problems.isEmpty()) {
+			mEntries.remove(name);
+			System.err.printf("Config %s is invalid:%n%s%n", name, String.join(System.lineSeparator(), problems));
+			throw new IllegalArgumentException();
+		}
+		var entry = new Entry(config, lastModified);
+		mEntries.put(name, entry);
+		return entry;
+	}
+
+	/**
+	 * Catches what would otherwise only fail once test mode is configuring controllers.
+	 *
+	 * @return Description of each problem, empty when valid
+	 */
+	static List<String> validate(Config config) {
+		List<String> problems = new ArrayList<>();
+		if (config.master == null) {
+			problems.add("Missing master");
+		} else {
+			if (config.master.type == null) problems.add("Missing master type");
+			if (config.master.gains == null) problems.add("Missing master gains");
+			if (config.master.minimumOutput > config.master.maximumOutput) problems.add("Minimum output is above maximum output");
+			if (config.master.type == ControllerType.SIMULATED) {
+				String plantProblem = config.master.plant == null ? "Missing plant" : Plant.validate(config.master.plant);
+				if (plantProblem != null) problems.add(plantProblem);
+			}
+		}
+		if (config.slaves == null || config.slaves.stream().anyMatch(slave -> slave == null || slave.type == null)) {
+			problems.add("Every slave needs a type");
+		}
+		if (config.solenoidId == null) problems.add("Solenoid ids can not be null");
+		if (config.xboxId < 0) problems.add("X-Box id can not be negative");
+		if (config.sampleFrequency < 0.0) problems.add("Sample frequency can not be negative");
+		if (config.liveGraphDecimation < 1) problems.add("Live graph decimation must be at least one");
+		if (config.binaryLog && config.binaryLogCapacity < 1) problems.add("Binary log capacity must be at least one");
+		return problems;
+	}
+}
@@ -0,0 +1,166 @@
+package team8.tuner.config;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import team8.tuner.config.Config.MasterConfig;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Watches a config for changes while test mode is running, from either its JSON file in the config directory or a NetworkTables table.
+ * Changed configs are handed to the robot loop through {@link #poll()}, it is up to the caller to push them to the controllers.
+ */
+public class ConfigWatcher {
+
+	/**
+	 * Master parameters exposed over NetworkTables. Limits are NaN when disabled.
+	 */
+	private enum Parameter {
+		P(master -> master.gains.p, (master, value) -> master.gains.p = value),
+		I(master -> master.gains.i, (master, value) -> master.gains.i = value),
+		D(master -> master.gains.d, (master, value) -> master.gains.d = value),
+		F(master -> master.gains.f, (master, value) -> master.gains.f = value),
+		FF(master -> master.gains.ff, (master, value) -> master.gains.ff = value),
+		I_ZONE(master -> master.gains.iZone, (master, value) -> master.gains.iZone = value),
+		I_MAX(master -> master.gains.iMax, (master, value) -> master.gains.iMax = value),
+		A(master -> master.gains.a, (master, value) -> master.gains.a = value),
+		V(master -> master.gains.v, (master, value) -> master.gains.v = value),
+		ALLOWABLE_ERROR(master -> master.gains.allowableError, (master, value) -> master.gains.allowableError = value),
+		RAMP(master -> master.ramp, (master, value) -> master.ramp = value),
+		FORWARD_LIMIT(master -> toDouble(master.forwardLimit), (master, value) -> master.forwardLimit = toLimit(value)),
+		REVERSE_LIMIT(master -> toDouble(master.reverseLimit), (master, value) -> master.reverseLimit = toLimit(value));
+
+		private final ToDoubleFunction<MasterConfig> mGetter;
+		private final ObjDoubleConsumer<MasterConfig> mSetter;
+
+		Parameter(ToDoubleFunction<MasterConfig> getter, ObjDoubleConsumer<MasterConfig> setter) {
+			mGetter = getter;
+			mSetter = setter;
+		}
+
+		private static double toDouble(Float limit) {
+			return limit == null ? Double.NaN : limit;
+		}
+
+		private static Float toLimit(double value) {
+			return Double.isNaN(value) ? null : (float) value;
+		}
+	}
+
+	public static final String kTableName = "tuner-config";
+	/**
+	 * Editors tend to save in several writes, wait for them to settle before reading
+	 */
+	private static final long kFileSettleMillis = 100L;
+
+	private final String mFileName;
+	private final AtomicReference<Config> mPending = new AtomicReference<>();
+	private final NetworkTable mTable;
+	private final Map<Parameter, NetworkTableEntry> mEntries = new EnumMap<>(Parameter.class);
+	private final int mListenerHandle;
+	private final WatchService mWatchService;
+	private Config mLatest;
+
+	/**
+	 * @param tableName {@link #kTableName} when there is only one mechanism, otherwise a sub table of it per mechanism
+	 */
+	public ConfigWatcher(Config config, String fileName, String tableName) throws IOException {
+		mLatest = C.copy(config);
+		mFileName = String.format("%s.json", fileName);
+		mTable = NetworkTableInstance.getDefault().getTable(tableName);
+		for (Parameter parameter : Parameter.values()) {
+			mEntries.put(parameter, mTable.getEntry(parameter.name().toLowerCase()));
+		}
+		publish(mLatest);
+		mListenerHandle = mTable.addEntryListener(this::onEntryChanged, EntryListenerFlags.kUpdate);
+		mWatchService = FileSystems.getDefault().newWatchService();
+		C.getConfigPath().register(mWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		var watchThread = new Thread(this::watchFiles, "ConfigWatcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * @return Latest changed config since the last call, otherwise null
+	 */
+	public Config poll() {
+		return mPending.getAndSet(null);
+	}
+
+	public void close() {
+		mTable.removeEntryListener(mListenerHandle);
+		try {
+			mWatchService.close();
+		} catch (IOException closeException) {
+			closeException.printStackTrace();
+		}
+	}
+
+	private void watchFiles() {
+		try {
+			while (true) {
+				WatchKey key = mWatchService.take();
+				boolean isChanged = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					isChanged |= event.context() instanceof Path && event.context().toString().equals(mFileName);
+				}
+				key.reset();
+				if (isChanged) {
+					Thread.sleep(kFileSettleMillis);
+					reloadFile();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException stopped) {
+			// Closed when leaving test mode
+		}
+	}
+
+	private void reloadFile() {
+		Config config;
+		try {
+			config = C.read(Config.class, mFileName.replaceFirst("\\.json$", ""));
+		} catch (IllegalArgumentException readException) {
+			System.err.printf("Ignoring change to %s until it can be read%n", mFileName);
+			return;
+		}
+		System.out.printf("Reloaded %s%n", mFileName);
+		synchronized (this) {
+			mLatest = config;
+			mPending.set(C.copy(config));
+		}
+		publish(config);
+	}
+
+	private void onEntryChanged(NetworkTable table, String key, NetworkTableEntry entry, NetworkTableValue value, int flags) {
+		if (!value.isDouble()) return;
+		for (Parameter parameter : Parameter.values()) {
+			if (parameter.name().toLowerCase().equals(key)) {
+				synchronized (this) {
+					parameter.mSetter.accept(mLatest.master, value.getDouble());
+					mPending.set(C.copy(mLatest));
+				}
+				System.out.printf("Set %s to %f from NetworkTables%n", key, value.getDouble());
+				return;
+			}
+		}
+	}
+
+	private void publish(Config config) {
+		mEntries.forEach((parameter, entry) -> entry.setDouble(parameter.mGetter.applyAsDouble(config.master)));
+	}
+}
@@ -5,6 +5,7 @@ import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.InvertType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrame;
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 import team8.tuner.config.Config.MasterConfig;
 import team8.tuner.config.Config.SimpleConfig;
@@ -16,38 +17,60 @@ import static team8.tuner.Robot.kPidSlotIndex;
 public abstract class CTREControllerBase<TController extends BaseMotorController> extends ControllerBase<TController> {
 
 	protected static final int kTimeout = 100;
+	private static final double kNativeOutputScale = 1023.0;
+
+	private final double mPositionConversion, mVelocityConversion;
 
 	CTREControllerBase(SimpleConfig config) {
 		super(config.id);
 		mController = controllerFactory().apply(config.id);
-		check(mController.configFactoryDefault(kTimeout), "factory defaults");
+		// Sensor units are left native on CTRE controllers, so the conversion only applies when interpreting them
+		mPositionConversion = config instanceof MasterConfig ? ((MasterConfig) config).positionConversion : 1.0;
+		mVelocityConversion = config instanceof MasterConfig ? ((MasterConfig) config).velocityConversion : 1.0;
+		if (loadAppliedConfig(config)) {
+			check(mController.configFactoryDefault(kTimeout), "factory defaults");
+		}
 		mController.setNeutralMode(config.isBraked ? NeutralMode.Brake : NeutralMode.Coast);
+		configure("general status period", config.generalStatusPeriodMs,
+				period -> check(mController.setStatusFramePeriod(StatusFrame.Status_1_General, period, kTimeout), "general status period"));
+		configure("feedback status period", config.feedbackStatusPeriodMs,
+				period -> check(mController.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, period, kTimeout), "feedback status period"));
+		mCanUsage.setStatusFramePeriods(config.generalStatusPeriodMs, config.feedbackStatusPeriodMs);
 		if (config instanceof MasterConfig) {
 			var masterConfig = (MasterConfig) config;
-			configForwardSoftLimit(masterConfig.forwardLimit);
-			configReverseSoftLimit(masterConfig.reverseLimit);
 			mController.setInverted(masterConfig.isInverted);
 			mController.setSensorPhase(masterConfig.isSensorInverted);
 			mController.enableVoltageCompensation(true);
-			check(mController.configVoltageCompSaturation(masterConfig.voltageCompensation, kTimeout), "voltage compensation");
-			check(mController.configOpenloopRamp(masterConfig.ramp), "open loop ramp");
-			check(mController.configClosedloopRamp(masterConfig.ramp), "closed loop ramp");
-			check(mController.config_kP(kPidSlotIndex, masterConfig.gains.p, kTimeout), "p");
-			check(mController.config_kI(kPidSlotIndex, masterConfig.gains.i, kTimeout), "i");
-			check(mController.config_kD(kPidSlotIndex, masterConfig.gains.d, kTimeout), "d");
-			check(mController.config_kF(kPidSlotIndex, masterConfig.gains.f, kTimeout), "f");
-			check(mController.configMaxIntegralAccumulator(kPidSlotIndex, masterConfig.gains.iMax, kTimeout), "i max");
-			check(mController.config_IntegralZone(kPidSlotIndex, round(masterConfig.gains.iZone), kTimeout), "i zone");
-			check(mController.configPeakOutputForward(masterConfig.maximumOutput, kTimeout), "peak forward output");
-			check(mController.configPeakOutputReverse(masterConfig.minimumOutput, kTimeout), "peak reverse output");
-			check(mController.configMotionSCurveStrength(3, kTimeout), "s curve");
-			check(mController.configMotionCruiseVelocity(round(masterConfig.gains.v), kTimeout), "max velocity");
-			check(mController.configMotionAcceleration(round(masterConfig.gains.a), kTimeout), "max acceleration");
-			check(mController.configAllowableClosedloopError(kPidSlotIndex, round(masterConfig.gains.allowableError), kTimeout), "allowable error");
+			configureMaster(masterConfig);
 			check(mController.setSelectedSensorPosition(round(masterConfig.startingPosition), 0, kTimeout), "starting position");
 		}
 	}
 
+	private void configureMaster(MasterConfig config) {
+		configure("forward soft limit", config.forwardLimit, this::configForwardSoftLimit);
+		configure("reverse soft limit", config.reverseLimit, this::configReverseSoftLimit);
+		configure("voltage compensation", config.voltageCompensation,
+				voltage -> check(mController.configVoltageCompSaturation(voltage, kTimeout), "voltage compensation"));
+		configure("open loop ramp", config.ramp, ramp -> check(mController.configOpenloopRamp(ramp), "open loop ramp"));
+		configure("closed loop ramp", config.ramp, ramp -> check(mController.configClosedloopRamp(ramp), "closed loop ramp"));
+		configure("p", config.gains.p, p -> check(mController.config_kP(kPidSlotIndex, p, kTimeout), "p"));
+		configure("i", config.gains.i, i -> check(mController.config_kI(kPidSlotIndex, i, kTimeout), "i"));
+		configure("d", config.gains.d, d -> check(mController.config_kD(kPidSlotIndex, d, kTimeout), "d"));
+		configure("f", config.gains.f, f -> check(mController.config_kF(kPidSlotIndex, f, kTimeout), "f"));
+		configure("i max", config.gains.iMax, iMax -> check(mController.configMaxIntegralAccumulator(kPidSlotIndex, iMax, kTimeout), "i max"));
+		configure("i zone", round(config.gains.iZone), iZone -> check(mController.config_IntegralZone(kPidSlotIndex, iZone, kTimeout), "i zone"));
+		configure("peak forward output", config.maximumOutput,
+				output -> check(mController.configPeakOutputForward(output, kTimeout), "peak forward output"));
+		configure("peak reverse output", config.minimumOutput,
+				output -> check(mController.configPeakOutputReverse(output, kTimeout), "peak reverse output"));
+		configure("s curve", 3, strength -> check(mController.configMotionSCurveStrength(strength, kTimeout), "s curve"));
+		configure("max velocity", round(config.gains.v), velocity -> check(mController.configMotionCruiseVelocity(velocity, kTimeout), "max velocity"));
+		configure("max acceleration", round(config.gains.a),
+				acceleration -> check(mController.configMotionAcceleration(acceleration, kTimeout), "max acceleration"));
+		configure("allowable error", round(config.gains.allowableError),
+				error -> check(mController.configAllowableClosedloopError(kPidSlotIndex, error, kTimeout), "allowable error"));
+	}
+
 	protected static int round(double d) {
 		return (int) Math.round(d);
 	}
@@ -72,6 +95,17 @@ public abstract class CTREControllerBase<TController extends BaseMotorController
 		}
 	}
 
+	@Override
+	boolean hasResetOccurred() {
+		return mController.hasResetOccurred();
+	}
+
+	@Override
+	public void reconfigure(MasterConfig config) {
+		checkResetBeforeReload();
+		configureMaster(config);
+	}
+
 	@Override
 	public void follow(Controller master, boolean isInverted) {
 		try {
@@ -84,13 +118,15 @@ public abstract class CTREControllerBase<TController extends BaseMotorController
 	}
 
 	@Override
-	public void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
+	void writeOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
 		com.ctre.phoenix.motorcontrol.ControlMode controlType;
 		switch (controlMode) {
 			case DISABLED:
 				controlType = com.ctre.phoenix.motorcontrol.ControlMode.Disabled;
 				break;
 			case PERCENT_OUTPUT:
+			case AUTOTUNE:
+			case CHARACTERIZE:
 				controlType = com.ctre.phoenix.motorcontrol.ControlMode.PercentOutput;
 				break;
 			case SMART_MOTION:
@@ -119,4 +155,19 @@ public abstract class CTREControllerBase<TController extends BaseMotorController
 	public double getAppliedPercentOutput() {
 		return mController.getMotorOutputPercent();
 	}
+
+	@Override
+	public double getNativeOutputScale() {
+		return kNativeOutputScale;
+	}
+
+	@Override
+	public double getPositionConversion() {
+		return mPositionConversion;
+	}
+
+	@Override
+	public double getVelocityConversion() {
+		return mVelocityConversion;
+	}
 }
@@ -1,13 +1,57 @@
 package team8.tuner.controller;
 
+import team8.tuner.config.Config.MasterConfig;
+
 public interface Controller {
 
 	enum ControlMode {
-		DISABLED, SMART_MOTION, SMART_VELOCITY, PERCENT_OUTPUT
+		DISABLED(0), SMART_MOTION(1), SMART_VELOCITY(2), PERCENT_OUTPUT(3),
+		/**
+		 * Percent output decided on the robot by the relay autotuner
+		 */
+		AUTOTUNE(4),
+		/**
+		 * Percent output decided on the robot by the feed forward characterizer, without any feed forward added
+		 */
+		CHARACTERIZE(5);
+
+		private final int mLogCode;
+
+		ControlMode(int logCode) {
+			mLogCode = logCode;
+		}
+
+		/**
+		 * @return Value written to logs for this mode, fixed so that archived logs keep their meaning when modes are added or reordered
+		 */
+		public int getLogCode() {
+			return mLogCode;
+		}
+	}
+
+	/**
+	 * Both vendors run the onboard closed loop at 1 kHz, and accumulate the integral and take the derivative per loop instead of per second
+	 */
+	double kClosedLoopPeriod = 0.001;
+
+	/**
+	 * Feed forward added on top of the onboard closed loop in percent, with gravity compensation for arms measured in degrees.
+	 */
+	static double getArbitraryFeedForward(MasterConfig config, double position) {
+		double arbitraryFeedForward = config.gains.ff;
+		if (config.armFf != null) {
+			arbitraryFeedForward += config.armFf * Math.cos(Math.toRadians(position - config.armComOffset));
+		}
+		return arbitraryFeedForward;
 	}
 
 	void follow(Controller master, boolean isInverted);
 
+	/**
+	 * Pushes gains, ramps, outputs and limits from the config to a running master, only sending parameters which changed.
+	 */
+	void reconfigure(MasterConfig config);
+
 	void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward);
 
 	double getOutputCurrent();
@@ -17,4 +61,19 @@ public interface Controller {
 	double getVelocity();
 
 	double getAppliedPercentOutput();
+
+	/**
+	 * @return Closed loop output which corresponds to full percent output, for converting gains to native units
+	 */
+	double getNativeOutputScale();
+
+	/**
+	 * @return Multiplier from the units of {@link #getPosition()} to mechanism units
+	 */
+	double getPositionConversion();
+
+	/**
+	 * @return Multiplier from the units of {@link #getVelocity()} to mechanism units
+	 */
+	double getVelocityConversion();
 }
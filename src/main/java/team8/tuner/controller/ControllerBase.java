@@ -1,14 +1,125 @@
 package team8.tuner.controller;
 
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.config.Config.SimpleConfig;
+import team8.tuner.data.CanUsage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public abstract class ControllerBase<TController> implements Controller {
 
+	private static final String kIsMasterKey = "is master";
+	/**
+	 * Last successfully applied value of each parameter, keyed by controller class and device id.
+	 * Lives as long as the robot program, so re-entering test mode only sends what changed in the config.
+	 * Dropped for a device that reset, since it then no longer holds what was applied.
+	 */
+	private static final Map<String, Map<String, Object>> sAppliedConfigs = new ConcurrentHashMap<>();
+	/**
+	 * Unchanged outputs are still resent this often, in case a frame was lost or the controller is waiting to hear from us
+	 */
+	private static volatile long sKeepAliveNanoseconds = TimeUnit.MILLISECONDS.toNanos(100);
+
 	protected TController mController;
+	protected final CanUsage.Device mCanUsage;
+	private final String mName;
+	private Map<String, Object> mAppliedConfig;
+	private ControlMode mLastControlMode;
+	private double mLastReference, mLastArbitraryFeedForward;
+	private long mLastWriteTime;
 
 	ControllerBase(int deviceId) {
 		mController = controllerFactory().apply(deviceId);
+		mName = String.format("%s %d", getClass().getSimpleName(), deviceId);
+		mCanUsage = CanUsage.register(mName);
 	}
 
 	abstract Function<Integer, TController> controllerFactory();
+
+	/**
+	 * Sends the output to the controller, only called when it changed or the keep alive is due.
+	 */
+	abstract void writeOutput(ControlMode controlMode, double reference, double arbitraryFeedForward);
+
+	/**
+	 * Also clears the indication, so a reset is only reported once.
+	 *
+	 * @return Whether the device reset since this was last called, such as after a brownout
+	 */
+	abstract boolean hasResetOccurred();
+
+	public static void setKeepAlive(double seconds) {
+		sKeepAliveNanoseconds = (long) (seconds * 1.0e9);
+	}
+
+	public static long getKeepAliveNanoseconds() {
+		return sKeepAliveNanoseconds;
+	}
+
+	@Override
+	public final void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
+		long time = System.nanoTime();
+		if (controlMode == mLastControlMode && reference == mLastReference && arbitraryFeedForward == mLastArbitraryFeedForward
+				&& time - mLastWriteTime < sKeepAliveNanoseconds) {
+			return;
+		}
+		writeOutput(controlMode, reference, arbitraryFeedForward);
+		mCanUsage.countWrite();
+		mLastControlMode = controlMode;
+		mLastReference = reference;
+		mLastArbitraryFeedForward = arbitraryFeedForward;
+		mLastWriteTime = time;
+	}
+
+	/**
+	 * Looks up what was applied to this device the last time it was configured.
+	 *
+	 * @return Whether nothing is known about the device, it reset since, or it switched between master and slave,
+	 * so it should be reset to factory defaults
+	 */
+	protected boolean loadAppliedConfig(SimpleConfig config) {
+		boolean isMaster = config instanceof MasterConfig;
+		// Always asked so that the reset at power on is cleared before anything is applied
+		boolean isReset = hasResetOccurred();
+		mAppliedConfig = sAppliedConfigs.get(mName);
+		if (mAppliedConfig != null && isReset) {
+			System.err.printf("%s reset since it was last configured, applying everything again%n", mName);
+		} else if (mAppliedConfig != null && Objects.equals(mAppliedConfig.get(kIsMasterKey), isMaster)) {
+			return false;
+		}
+		mAppliedConfig = new HashMap<>();
+		mAppliedConfig.put(kIsMasterKey, isMaster);
+		sAppliedConfigs.put(mName, mAppliedConfig);
+		return true;
+	}
+
+	/**
+	 * Forgets what was applied when the device reset while running, so that every parameter of the reload is sent again.
+	 * Parameters outside of the reload are only applied again the next time test mode is entered.
+	 */
+	protected void checkResetBeforeReload() {
+		if (!hasResetOccurred()) return;
+		System.err.printf("%s reset while running, re-enter test mode to apply everything again%n", mName);
+		sAppliedConfigs.remove(mName);
+		mAppliedConfig = new HashMap<>();
+	}
+
+	/**
+	 * Applies a parameter only if it differs from what was last applied to this device, and logs how long it took.
+	 * The setter is expected to throw if the controller reports an error, in which case the parameter is not remembered.
+	 */
+	protected <T> void configure(String name, T value, Consumer<T> setter) {
+		if (mAppliedConfig.containsKey(name) && Objects.equals(mAppliedConfig.get(name), value)) return;
+		long startTime = System.nanoTime();
+		setter.accept(value);
+		mCanUsage.countWrite();
+		System.out.printf("%s: %s = %s took %.1f ms%n", mName, name, value, (System.nanoTime() - startTime) * 1.0e-6);
+		mAppliedConfig.put(name, value);
+	}
 }
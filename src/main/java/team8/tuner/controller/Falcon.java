@@ -1,5 +1,6 @@
 package team8.tuner.controller;
 
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.TalonFXFeedbackDevice;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.sensors.SensorInitializationStrategy;
@@ -11,8 +12,13 @@ public class Falcon extends TalonControllerBase<TalonFX> {
 
 	public Falcon(SimpleConfig config) {
 		super(config);
-		check(mController.configSelectedFeedbackSensor(TalonFXFeedbackDevice.IntegratedSensor, 0, kTimeout), "selected sensor");
-		check(mController.configIntegratedSensorInitializationStrategy(SensorInitializationStrategy.BootToZero, kTimeout), "sensor initialization strategy");
+		configure("selected sensor", TalonFXFeedbackDevice.IntegratedSensor,
+				sensor -> check(mController.configSelectedFeedbackSensor(sensor, 0, kTimeout), "selected sensor"));
+		configure("sensor initialization strategy", SensorInitializationStrategy.BootToZero,
+				strategy -> check(mController.configIntegratedSensorInitializationStrategy(strategy, kTimeout), "sensor initialization strategy"));
+		// Unlike the Talon SRX, supply current is not part of the feedback frame
+		configure("current status period", config.feedbackStatusPeriodMs,
+				period -> check(mController.setStatusFramePeriod(StatusFrameEnhanced.Status_Brushless_Current, period, kTimeout), "current status period"));
 	}
 
 	@Override
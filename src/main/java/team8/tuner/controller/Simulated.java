@@ -0,0 +1,228 @@
+package team8.tuner.controller;
+
+import team8.tuner.config.Config.ControllerType;
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.config.Config.PlantConfig;
+import team8.tuner.config.Config.SimpleConfig;
+import team8.tuner.sim.Plant;
+
+/**
+ * Drives a {@link Plant} instead of hardware, emulating the onboard closed loop and motion profile of the controller
+ * in {@link PlantConfig#emulate} so that gains carry over in native units.
+ * Nothing moves until {@link #step(double)} is called, so time can run as fast as the caller likes.
+ * Followers share the physics of their master, which should include them in {@link PlantConfig#motorCount}.
+ */
+public class Simulated implements Controller {
+
+	private static final double kSparkSecondsPerVelocityUnit = 60.0, kCtreSecondsPerVelocityUnit = 0.1;
+	private static final double kFalconCountsPerRotation = 2048.0, kTalonCountsPerRotation = 4096.0;
+	private static final double kCtreOutputScale = 1023.0;
+
+	private Plant mPlant;
+	private Simulated mMaster;
+	private MasterConfig mConfig;
+	/**
+	 * Native position units per output rotation, velocity units per output rotation per second and output per percent.
+	 * Both include the gearing unless the sensor is on the output, as native units are per sensor rotation.
+	 */
+	private double mPositionScale, mVelocityScale, mOutputScale, mPositionConversion, mVelocityConversion;
+	private boolean mIsCtre;
+	private ControlMode mControlMode = ControlMode.DISABLED;
+	private double mReference, mArbitraryFeedForward;
+	private double mIntegral, mLastError;
+	private double mProfilePosition, mProfileVelocity;
+	private double mOutput, mUnsteppedTime;
+
+	public Simulated(SimpleConfig config) {
+		if (config instanceof MasterConfig) {
+			var masterConfig = (MasterConfig) config;
+			mPlant = new Plant(masterConfig.plant);
+			reconfigure(masterConfig);
+			mPlant.setRotations(masterConfig.startingPosition / mPositionScale);
+		}
+	}
+
+	@Override
+	public void reconfigure(MasterConfig config) {
+		mConfig = config;
+		ControllerType emulated = config.plant.emulate == null ? ControllerType.SPARK : config.plant.emulate;
+		double sensorRotations = config.plant.isSensorOnOutput ? 1.0 : config.plant.gearing;
+		switch (emulated) {
+			case FALCON:
+			case TALON:
+			case VICTOR:
+				double counts = emulated == ControllerType.FALCON ? kFalconCountsPerRotation : kTalonCountsPerRotation;
+				mIsCtre = true;
+				mPositionScale = counts * sensorRotations;
+				mVelocityScale = counts * sensorRotations * kCtreSecondsPerVelocityUnit;
+				mOutputScale = kCtreOutputScale;
+				mPositionConversion = config.positionConversion;
+				mVelocityConversion = config.velocityConversion;
+				break;
+			default:
+				mPositionScale = config.positionConversion * sensorRotations;
+				mVelocityScale = config.velocityConversion * sensorRotations * kSparkSecondsPerVelocityUnit;
+				mOutputScale = 1.0;
+				mPositionConversion = 1.0;
+				mVelocityConversion = 1.0;
+				mIsCtre = false;
+				break;
+		}
+	}
+
+	/**
+	 * Advances the plant, running the emulated closed loop at {@link #kClosedLoopPeriod}.
+	 * Leftover time shorter than one closed loop period is carried over to the next call.
+	 */
+	public void step(double dt) {
+		if (mPlant == null) return;
+		mUnsteppedTime += dt;
+		while (mUnsteppedTime >= kClosedLoopPeriod) {
+			mOutput = limitOutput(calculateOutput());
+			mPlant.step(mOutput * mConfig.voltageCompensation, kClosedLoopPeriod);
+			mUnsteppedTime -= kClosedLoopPeriod;
+		}
+	}
+
+	private double calculateOutput() {
+		switch (mControlMode) {
+			case PERCENT_OUTPUT:
+			case AUTOTUNE:
+			case CHARACTERIZE:
+				return mReference + mArbitraryFeedForward;
+			case SMART_VELOCITY:
+				// The spark has no allowable error for its velocity loop
+				return closedLoop(mReference - getVelocity(), mReference, mIsCtre) + mArbitraryFeedForward;
+			case SMART_MOTION:
+				stepProfile();
+				// Smart motion on the spark follows the profile with its velocity loop, motion magic on CTRE with its position loop
+				if (mIsCtre) {
+					return closedLoop(mProfilePosition - getPosition(), mProfileVelocity, true) + mArbitraryFeedForward;
+				}
+				// The spark checks its allowable error against the final position, not the velocity error it closes the loop on
+				boolean isSettled = Math.abs(mReference - getPosition()) <= mConfig.gains.allowableError;
+				return closedLoop(isSettled ? 0.0 : mProfileVelocity - getVelocity(), mProfileVelocity, false) + mArbitraryFeedForward;
+			default:
+				mIntegral = 0.0;
+				return 0.0;
+		}
+	}
+
+	/**
+	 * Both vendors accumulate raw error every loop, clear it outside of the integral zone and clamp it to the maximum accumulator.
+	 *
+	 * @param isErrorDeadbanded Treat errors within the allowable error as zero, as CTRE does in every closed loop mode
+	 */
+	private double closedLoop(double error, double feedForwardReference, boolean isErrorDeadbanded) {
+		var gains = mConfig.gains;
+		if (isErrorDeadbanded && Math.abs(error) <= gains.allowableError) error = 0.0;
+		if (gains.iZone > 0.0 && Math.abs(error) > gains.iZone) {
+			mIntegral = 0.0;
+		} else {
+			mIntegral += error;
+		}
+		if (gains.iMax > 0.0) mIntegral = Math.max(-gains.iMax, Math.min(gains.iMax, mIntegral));
+		double output = gains.p * error + gains.i * mIntegral + gains.d * (error - mLastError) + gains.f * feedForwardReference;
+		mLastError = error;
+		output /= mOutputScale;
+		return Math.max(mConfig.minimumOutput, Math.min(mConfig.maximumOutput, output));
+	}
+
+	/**
+	 * Trapezoidal profile toward the reference, accelerating at {@code a} up to a cruise velocity of {@code v} in native velocity units.
+	 */
+	private void stepProfile() {
+		double velocityToPosition = mPositionScale / mVelocityScale;
+		double acceleration = mConfig.gains.a, cruiseVelocity = mConfig.gains.v;
+		if (acceleration <= 0.0 || cruiseVelocity <= 0.0) {
+			mProfilePosition = mReference;
+			mProfileVelocity = 0.0;
+			return;
+		}
+		double remaining = mReference - mProfilePosition;
+		double direction = Math.signum(remaining);
+		double stoppingDistance = mProfileVelocity * mProfileVelocity / (2.0 * acceleration) * velocityToPosition;
+		double velocityChange = acceleration * kClosedLoopPeriod;
+		if (Math.signum(mProfileVelocity) == direction && Math.abs(remaining) <= stoppingDistance) {
+			mProfileVelocity -= direction * Math.min(velocityChange, Math.abs(mProfileVelocity));
+		} else {
+			mProfileVelocity = Math.max(-cruiseVelocity, Math.min(cruiseVelocity, mProfileVelocity + direction * velocityChange));
+		}
+		double positionChange = mProfileVelocity * velocityToPosition * kClosedLoopPeriod;
+		if (Math.abs(positionChange) >= Math.abs(remaining) && Math.abs(mProfileVelocity) <= velocityChange) {
+			mProfilePosition = mReference;
+			mProfileVelocity = 0.0;
+		} else {
+			mProfilePosition += positionChange;
+		}
+	}
+
+	private double limitOutput(double output) {
+		output = Math.max(-1.0, Math.min(1.0, output));
+		if (output > 0.0 && mConfig.forwardLimit != null && getPosition() >= mConfig.forwardLimit) output = 0.0;
+		if (output < 0.0 && mConfig.reverseLimit != null && getPosition() <= mConfig.reverseLimit) output = 0.0;
+		if (mConfig.ramp > 0.0) {
+			double maximumChange = kClosedLoopPeriod / mConfig.ramp;
+			output = Math.max(mOutput - maximumChange, Math.min(mOutput + maximumChange, output));
+		}
+		return output;
+	}
+
+	@Override
+	public void follow(Controller master, boolean isInverted) {
+		try {
+			mMaster = (Simulated) master;
+		} catch (Exception exception) {
+			throw new RuntimeException("Could not follow!", exception);
+		}
+	}
+
+	@Override
+	public void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
+		if (mPlant == null) return;
+		if (controlMode != mControlMode) {
+			mIntegral = 0.0;
+			mLastError = 0.0;
+			mProfilePosition = getPosition();
+			mProfileVelocity = getVelocity();
+		}
+		mControlMode = controlMode;
+		mReference = reference;
+		mArbitraryFeedForward = arbitraryFeedForward;
+	}
+
+	@Override
+	public double getOutputCurrent() {
+		return mMaster == null ? mPlant.getCurrent() : mMaster.getOutputCurrent();
+	}
+
+	@Override
+	public double getPosition() {
+		return mMaster == null ? mPlant.getRotations() * mPositionScale : mMaster.getPosition();
+	}
+
+	@Override
+	public double getVelocity() {
+		return mMaster == null ? mPlant.getRotationsPerSecond() * mVelocityScale : mMaster.getVelocity();
+	}
+
+	@Override
+	public double getAppliedPercentOutput() {
+		return mMaster == null ? mOutput : mMaster.getAppliedPercentOutput();
+	}
+
+	@Override
+	public double getNativeOutputScale() {
+		return mOutputScale;
+	}
+
+	@Override
+	public double getPositionConversion() {
+		return mPositionConversion;
+	}
+
+	@Override
+	public double getVelocityConversion() {
+		return mVelocityConversion;
+	}
+}
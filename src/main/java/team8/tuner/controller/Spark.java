@@ -2,9 +2,11 @@ package team8.tuner.controller;
 
 import com.revrobotics.*;
 import com.revrobotics.CANSparkMax.ControlType;
+import com.revrobotics.CANSparkMax.FaultID;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMax.SoftLimitDirection;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 import com.revrobotics.SparkMaxPIDController.AccelStrategy;
 
 import team8.tuner.config.Config.MasterConfig;
@@ -24,34 +26,56 @@ public class Spark extends ControllerBase<CANSparkMax> {
 		super(config.id);
 		mPidController = mController.getPIDController();
 		mEncoder = mController.getEncoder();
-		check(mController.restoreFactoryDefaults(), "factory defaults");
-		check(mController.setIdleMode(config.isBraked ? IdleMode.kBrake : IdleMode.kCoast), "idle mode");
+		if (loadAppliedConfig(config)) {
+			check(mController.restoreFactoryDefaults(), "factory defaults");
+		}
+		configure("idle mode", config.isBraked ? IdleMode.kBrake : IdleMode.kCoast, mode -> check(mController.setIdleMode(mode), "idle mode"));
+		// Followers mirror the leader using its status 0 frame, so the master general period also sets how quickly they track it
+		configure("general status period", config.generalStatusPeriodMs,
+				period -> check(mController.setPeriodicFramePeriod(PeriodicFrame.kStatus0, period), "general status period"));
+		configure("feedback status period", config.feedbackStatusPeriodMs, period -> {
+			check(mController.setPeriodicFramePeriod(PeriodicFrame.kStatus1, period), "velocity and current status period");
+			check(mController.setPeriodicFramePeriod(PeriodicFrame.kStatus2, period), "position status period");
+		});
+		mCanUsage.setStatusFramePeriods(config.generalStatusPeriodMs, config.feedbackStatusPeriodMs, config.feedbackStatusPeriodMs);
 		if (config instanceof MasterConfig) {
 			var masterConfig = (MasterConfig) config;
-			configureSoftLimit(SoftLimitDirection.kForward, masterConfig.forwardLimit);
-			configureSoftLimit(SoftLimitDirection.kReverse, masterConfig.reverseLimit);
 			mController.setInverted(masterConfig.isInverted);
-			check(mController.enableVoltageCompensation(masterConfig.voltageCompensation), "voltage compensation");
-			check(mController.setOpenLoopRampRate(masterConfig.ramp), "open loop ramp");
-			check(mController.setClosedLoopRampRate(masterConfig.ramp), "closed loop ramp");
-			check(mPidController.setP(masterConfig.gains.p, kPidSlotIndex), "p");
-			check(mPidController.setI(masterConfig.gains.i, kPidSlotIndex), "i");
-			check(mPidController.setD(masterConfig.gains.d, kPidSlotIndex), "d");
-			check(mPidController.setFF(masterConfig.gains.f, kPidSlotIndex), "f");
-			check(mPidController.setIMaxAccum(masterConfig.gains.iMax, kPidSlotIndex), "i max");
-			check(mPidController.setIZone(masterConfig.gains.iZone, kPidSlotIndex), "i zone");
-			check(mPidController.setOutputRange(masterConfig.minimumOutput, masterConfig.maximumOutput, kPidSlotIndex),	"output range");
-			check(mPidController.setSmartMotionAccelStrategy(AccelStrategy.kSCurve, kPidSlotIndex), "strategy");
-			check(mPidController.setSmartMotionMaxVelocity(masterConfig.gains.v, kPidSlotIndex), "max velocity");
-			check(mPidController.setSmartMotionMaxAccel(masterConfig.gains.a, kPidSlotIndex), "max acceleration");
-			check(mPidController.setSmartMotionAllowedClosedLoopError(masterConfig.gains.allowableError, kPidSlotIndex), "allowable error");
-			check(mPidController.setSmartMotionMinOutputVelocity(0.0, kPidSlotIndex), "min velocity");
-			check(mEncoder.setPositionConversionFactor(masterConfig.positionConversion), "position conversion");
-			check(mEncoder.setVelocityConversionFactor(masterConfig.velocityConversion), "velocity conversion");
+			configureMaster(masterConfig);
 			check(mEncoder.setPosition(masterConfig.startingPosition), "starting position");
 		}
 	}
 
+	private void configureMaster(MasterConfig config) {
+		configure("forward soft limit", config.forwardLimit, limit -> configureSoftLimit(SoftLimitDirection.kForward, limit));
+		configure("reverse soft limit", config.reverseLimit, limit -> configureSoftLimit(SoftLimitDirection.kReverse, limit));
+		configure("voltage compensation", config.voltageCompensation,
+				voltage -> check(mController.enableVoltageCompensation(voltage), "voltage compensation"));
+		configure("open loop ramp", config.ramp, ramp -> check(mController.setOpenLoopRampRate(ramp), "open loop ramp"));
+		configure("closed loop ramp", config.ramp, ramp -> check(mController.setClosedLoopRampRate(ramp), "closed loop ramp"));
+		configure("p", config.gains.p, p -> check(mPidController.setP(p, kPidSlotIndex), "p"));
+		configure("i", config.gains.i, i -> check(mPidController.setI(i, kPidSlotIndex), "i"));
+		configure("d", config.gains.d, d -> check(mPidController.setD(d, kPidSlotIndex), "d"));
+		configure("f", config.gains.f, f -> check(mPidController.setFF(f, kPidSlotIndex), "f"));
+		configure("i max", config.gains.iMax, iMax -> check(mPidController.setIMaxAccum(iMax, kPidSlotIndex), "i max"));
+		configure("i zone", config.gains.iZone, iZone -> check(mPidController.setIZone(iZone, kPidSlotIndex), "i zone"));
+		configure("minimum output", config.minimumOutput,
+				output -> check(mPidController.setOutputRange(output, config.maximumOutput, kPidSlotIndex), "output range"));
+		configure("maximum output", config.maximumOutput,
+				output -> check(mPidController.setOutputRange(config.minimumOutput, output, kPidSlotIndex), "output range"));
+		configure("strategy", AccelStrategy.kSCurve, strategy -> check(mPidController.setSmartMotionAccelStrategy(strategy, kPidSlotIndex), "strategy"));
+		configure("max velocity", config.gains.v, velocity -> check(mPidController.setSmartMotionMaxVelocity(velocity, kPidSlotIndex), "max velocity"));
+		configure("max acceleration", config.gains.a,
+				acceleration -> check(mPidController.setSmartMotionMaxAccel(acceleration, kPidSlotIndex), "max acceleration"));
+		configure("allowable error", config.gains.allowableError,
+				error -> check(mPidController.setSmartMotionAllowedClosedLoopError(error, kPidSlotIndex), "allowable error"));
+		configure("min velocity", 0.0, velocity -> check(mPidController.setSmartMotionMinOutputVelocity(velocity, kPidSlotIndex), "min velocity"));
+		configure("position conversion", config.positionConversion,
+				conversion -> check(mEncoder.setPositionConversionFactor(conversion), "position conversion"));
+		configure("velocity conversion", config.velocityConversion,
+				conversion -> check(mEncoder.setVelocityConversionFactor(conversion), "velocity conversion"));
+	}
+
 	private void configureSoftLimit(SoftLimitDirection direction, Float configLimit) {
 		var limit = Optional.ofNullable(configLimit);
 		check(mController.enableSoftLimit(direction, limit.isPresent()), "enable soft limit");
@@ -71,6 +95,20 @@ public class Spark extends ControllerBase<CANSparkMax> {
 		return deviceId -> new CANSparkMax(deviceId, MotorType.kBrushless);
 	}
 
+	@Override
+	boolean hasResetOccurred() {
+		if (!mController.getStickyFault(FaultID.kHasReset)) return false;
+		// Sticky faults stay set until cleared, which clears the others as well
+		check(mController.clearFaults(), "clear faults");
+		return true;
+	}
+
+	@Override
+	public void reconfigure(MasterConfig config) {
+		checkResetBeforeReload();
+		configureMaster(config);
+	}
+
 	@Override
 	public void follow(Controller master, boolean isInverted) {
 		try {
@@ -82,7 +120,7 @@ public class Spark extends ControllerBase<CANSparkMax> {
 	}
 
 	@Override
-	public void setOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
+	void writeOutput(ControlMode controlMode, double reference, double arbitraryFeedForward) {
 		ControlType controlType;
 		switch (controlMode) {
 			case DISABLED:
@@ -90,6 +128,8 @@ public class Spark extends ControllerBase<CANSparkMax> {
 				reference = 0.0;
 				break;
 			case PERCENT_OUTPUT:
+			case AUTOTUNE:
+			case CHARACTERIZE:
 				controlType = ControlType.kDutyCycle;
 				break;
 			case SMART_MOTION:
@@ -123,4 +163,22 @@ public class Spark extends ControllerBase<CANSparkMax> {
 	public double getAppliedPercentOutput() {
 		return mController.getAppliedOutput();
 	}
+
+	@Override
+	public double getNativeOutputScale() {
+		return 1.0;
+	}
+
+	/**
+	 * The encoder applies the conversion factor itself, so positions are already in mechanism units.
+	 */
+	@Override
+	public double getPositionConversion() {
+		return 1.0;
+	}
+
+	@Override
+	public double getVelocityConversion() {
+		return 1.0;
+	}
 }
@@ -0,0 +1,101 @@
+package team8.tuner.data;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Alternative to {@link CSVWriter} which stores fixed width binary records in a preallocated memory mapped ring file.
+ * Recording a row is a handful of absolute puts into the mapping, and the file never grows past its capacity,
+ * once full the oldest records are overwritten. See {@link BinaryLogReader} for the layout.
+ */
+public class BinaryLog {
+
+	private static final String kFileName = "canlog.bin";
+
+	private static final Path sLogFile = RobotBase.isReal()
+			? Paths.get("/home/lvuser", kFileName)
+			: Paths.get(Filesystem.getOperatingDirectory().toString(), kFileName);
+	private static MappedByteBuffer sBuffer;
+	private static Channel[] sColumns;
+	private static int sCapacity, sHeaderSize, sRecordSize;
+	private static long sRecordCount;
+	private static Timer sTimer = new Timer();
+
+	private BinaryLog() {
+	}
+
+	/**
+	 * @param capacity Number of records kept before wrapping around
+	 */
+	public static void init(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("Binary log capacity must be at least one");
+		sCapacity = capacity;
+		sColumns = null;
+		sBuffer = null;
+		sRecordCount = 0L;
+		sTimer.start();
+	}
+
+	/**
+	 * Records the current value of every channel with a single shared timestamp.
+	 * Columns are fixed to the logged channels registered at the first row after {@link #init}, which is also when the file is created.
+	 */
+	public static void addRow() {
+		addRow(sTimer.get());
+	}
+
+	public static void addRow(double time) {
+		if (sColumns == null) {
+			sColumns = Telemetry.getLoggedChannels().toArray(new Channel[0]);
+			open();
+		}
+		if (sBuffer == null) return;
+		int offset = BinaryLogReader.recordOffset(sHeaderSize, sRecordSize, sCapacity, sRecordCount);
+		sBuffer.putDouble(offset, time);
+		for (int i = 0; i < sColumns.length; i++) {
+			sBuffer.putDouble(offset + (i + 1) * Double.BYTES, sColumns[i].get());
+		}
+		// Only publish the record once it is complete so a reader never sees a torn one
+		sBuffer.putLong(BinaryLogReader.kRecordCountOffset, ++sRecordCount);
+	}
+
+	private static void open() {
+		var names = new String[sColumns.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = sColumns[i].getName();
+		}
+		byte[][] encodedNames = BinaryLogReader.encodeNames(names);
+		sHeaderSize = BinaryLogReader.headerSize(encodedNames);
+		sRecordSize = BinaryLogReader.recordSize(names.length);
+		// A single mapping is limited to two gigabytes, so the ring holds fewer records when there are many channels
+		long maximumCapacity = (Integer.MAX_VALUE - sHeaderSize) / sRecordSize;
+		if (sCapacity > maximumCapacity) {
+			System.err.printf("Binary log capacity of %d records of %d channels does not fit in one mapping, using %d%n",
+					sCapacity, names.length, maximumCapacity);
+			sCapacity = (int) maximumCapacity;
+		}
+		long size = sHeaderSize + (long) sCapacity * sRecordSize;
+		try {
+			Files.deleteIfExists(sLogFile);
+			try (FileChannel channel = FileChannel.open(sLogFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				sBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+			sBuffer.order(BinaryLogReader.kByteOrder);
+			BinaryLogReader.writeHeader(sBuffer, encodedNames, sCapacity, sHeaderSize);
+			System.out.printf("Logging %d channels to %s, %d records (%d bytes)%n", names.length, sLogFile, sCapacity, size);
+		} catch (IOException openException) {
+			System.err.println("Failed to create binary log:");
+			openException.printStackTrace();
+			sBuffer = null;
+		}
+	}
+}
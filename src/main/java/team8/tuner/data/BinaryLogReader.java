@@ -0,0 +1,136 @@
+package team8.tuner.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads logs written by {@link BinaryLog}. Does not touch anything robot specific so it can run on a desktop.
+ * <p>
+ * Layout, little endian: {@code int magic, int version, int channel count, int record capacity, int header size, int reserved,
+ * long records written}, then per channel a {@code short} length and UTF-8 name, padded to eight bytes.
+ * After the header is a ring of fixed width records, each a {@code double} timestamp followed by a {@code double} per channel.
+ */
+public class BinaryLogReader {
+
+	static final int kMagic = 0x424E5438; // "8TNB"
+	static final int kVersion = 1;
+	static final ByteOrder kByteOrder = ByteOrder.LITTLE_ENDIAN;
+	static final int kChannelCountOffset = 8, kCapacityOffset = 12, kHeaderSizeOffset = 16, kRecordCountOffset = 24, kNamesOffset = 32;
+
+	@FunctionalInterface
+	public interface RecordConsumer {
+
+		/**
+		 * @param values Reused between records, copy if it needs to be kept
+		 */
+		void accept(double time, double[] values);
+	}
+
+	private final MappedByteBuffer mBuffer;
+	private final String[] mChannelNames;
+	private final int mCapacity, mHeaderSize, mRecordSize;
+	private final long mRecordCount;
+
+	public BinaryLogReader(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Binary log is too large to map: " + path);
+			mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		mBuffer.order(kByteOrder);
+		if (mBuffer.getInt(0) != kMagic) throw new IOException("Not a binary tuner log: " + path);
+		int version = mBuffer.getInt(4);
+		if (version != kVersion) throw new IOException(String.format("Unsupported binary log version %d", version));
+		int channelCount = mBuffer.getInt(kChannelCountOffset);
+		mCapacity = mBuffer.getInt(kCapacityOffset);
+		mHeaderSize = mBuffer.getInt(kHeaderSizeOffset);
+		mRecordCount = mBuffer.getLong(kRecordCountOffset);
+		mRecordSize = recordSize(channelCount);
+		mChannelNames = new String[channelCount];
+		int position = kNamesOffset;
+		for (int i = 0; i < channelCount; i++) {
+			var name = new byte[mBuffer.getShort(position)];
+			for (int j = 0; j < name.length; j++) {
+				name[j] = mBuffer.get(position + Short.BYTES + j);
+			}
+			mChannelNames[i] = new String(name, StandardCharsets.UTF_8);
+			position += Short.BYTES + name.length;
+		}
+	}
+
+	public String[] getChannelNames() {
+		return mChannelNames.clone();
+	}
+
+	/**
+	 * @return Number of records still held in the ring, older ones have been overwritten
+	 */
+	public int getRecordCount() {
+		return (int) Math.min(mRecordCount, mCapacity);
+	}
+
+	/**
+	 * Visits the records still in the ring from oldest to newest.
+	 */
+	public void forEachRecord(RecordConsumer consumer) {
+		var values = new double[mChannelNames.length];
+		long first = mRecordCount - getRecordCount();
+		for (long record = first; record < mRecordCount; record++) {
+			int offset = recordOffset(mHeaderSize, mRecordSize, mCapacity, record);
+			double time = mBuffer.getDouble(offset);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = mBuffer.getDouble(offset + (i + 1) * Double.BYTES);
+			}
+			consumer.accept(time, values);
+		}
+	}
+
+	static int recordSize(int channelCount) {
+		return (channelCount + 1) * Double.BYTES;
+	}
+
+	/**
+	 * Worked out in long, the writer keeps the whole file within an int
+	 */
+	static int recordOffset(int headerSize, int recordSize, int capacity, long record) {
+		return Math.toIntExact(headerSize + record % capacity * recordSize);
+	}
+
+	static byte[][] encodeNames(String[] names) {
+		var encoded = new byte[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+		}
+		return encoded;
+	}
+
+	static int headerSize(byte[][] encodedNames) {
+		int size = kNamesOffset;
+		for (byte[] name : encodedNames) {
+			size += Short.BYTES + name.length;
+		}
+		return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+	}
+
+	static void writeHeader(ByteBuffer buffer, byte[][] encodedNames, int capacity, int headerSize) {
+		buffer.putInt(0, kMagic);
+		buffer.putInt(4, kVersion);
+		buffer.putInt(kChannelCountOffset, encodedNames.length);
+		buffer.putInt(kCapacityOffset, capacity);
+		buffer.putInt(kHeaderSizeOffset, headerSize);
+		buffer.putLong(kRecordCountOffset, 0L);
+		int position = kNamesOffset;
+		for (byte[] name : encodedNames) {
+			buffer.putShort(position, (short) name.length);
+			for (int j = 0; j < name.length; j++) {
+				buffer.put(position + Short.BYTES + j, name[j]);
+			}
+			position += Short.BYTES + name.length;
+		}
+	}
+}
@@ -4,42 +4,91 @@ import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.Timer;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
+/**
+ * Buffers CSV rows in memory and appends them to a single file.
+ * In background mode the robot loop only appends into the front buffer,
+ * while a dedicated writer thread swaps it with the back buffer and drains that into a file channel which stays open.
+ * In compressed mode every flushed buffer is deflated on its own and framed with its length and checksum,
+ * so losing power partway through a write only loses that block. {@link CompressedCsvInputStream} reads it back.
+ * Blocks are only synced to disk in background mode, since syncing to flash inside the robot loop would disturb its timing.
+ */
 public class CSVWriter {
 
 	private static final String kCommaDeliminator = ",", kNewLineSeparator = "\n";
 	private static final int kAllocateSize = 40000;
-	private static final String kFileName = "canlog.csv";
+	private static final String kFileName = "canlog.csv", kCompressedFileName = "canlog.csv.z", kTimeColumn = "time";
 
-	private static final Path sCsvFile = RobotBase.isReal()
-			? Paths.get("/home/lvuser", kFileName)
-			: Paths.get(Filesystem.getOperatingDirectory().toString(), kFileName);
-	private static final StringBuilder sBuilder = new StringBuilder(kAllocateSize);
+	private static final Path sCsvFile = getPath(kFileName), sCompressedFile = getPath(kCompressedFileName);
+	private static final Object sLock = new Object();
+	private static StringBuilder sBuilder = new StringBuilder(kAllocateSize), sBackBuilder = new StringBuilder(kAllocateSize);
+	private static ByteBuffer sByteBuffer = ByteBuffer.allocateDirect(kAllocateSize * 2);
+	private static ByteBuffer sCompressedBuffer = ByteBuffer.allocateDirect(kAllocateSize).order(CompressedCsvInputStream.kByteOrder);
+	/**
+	 * Fastest level, CSV text still shrinks several times over and the writer stays cheap on the roboRIO
+	 */
+	private static final Deflater sDeflater = new Deflater(Deflater.BEST_SPEED);
+	private static final CRC32 sCrc = new CRC32();
+	private static FileChannel sChannel;
+	private static Thread sWriterThread;
+	private static boolean sIsBackground, sIsWide, sIsCompressed, sIsFlushRequested, sIsResetRequested;
+	private static Channel[] sColumns;
 	private static Timer sTimer = new Timer();
 
 	private CSVWriter() {
 	}
 
+	private static Path getPath(String fileName) {
+		return RobotBase.isReal()
+				? Paths.get("/home/lvuser", fileName)
+				: Paths.get(Filesystem.getOperatingDirectory().toString(), fileName);
+	}
+
 	public static void init() {
-		try {
-			Files.deleteIfExists(sCsvFile);
-		} catch (IOException deleteException) {
-			deleteException.printStackTrace();
-			System.err.println("Failed to delete existing CSV file!");
+		init(false, false, false);
+	}
+
+	/**
+	 * @param isBackground Write on a dedicated thread instead of inside of the caller of {@link #write()}
+	 * @param isWide       Write one row per {@link #addRow()} with a column per channel instead of one row per channel
+	 * @param isCompressed Write deflated, checksummed blocks to {@value #kCompressedFileName} instead of plain text
+	 */
+	public static void init(boolean isBackground, boolean isWide, boolean isCompressed) {
+		synchronized (sLock) {
+			sBuilder.setLength(0);
+			sColumns = null;
+			sIsResetRequested = true;
+			sIsBackground = isBackground;
+			sIsWide = isWide;
+			sIsCompressed = isCompressed;
+			if (isBackground && sWriterThread == null) {
+				sWriterThread = new Thread(CSVWriter::writerLoop, "CSVWriter");
+				sWriterThread.setDaemon(true);
+				sWriterThread.start();
+			}
 		}
+		if (!isBackground) drain();
 		sTimer.start();
 	}
 
 	private static void add(String key, Object secondValue, UnaryOperator<StringBuilder> valueCellWriter) {
-		sBuilder.append(key).append(kCommaDeliminator).append(secondValue).append(kCommaDeliminator);
-		valueCellWriter.apply(sBuilder).append(kNewLineSeparator);
-		if (sBuilder.length() > kAllocateSize) write();
+		boolean isFull;
+		synchronized (sLock) {
+			sBuilder.append(key).append(kCommaDeliminator).append(secondValue).append(kCommaDeliminator);
+			valueCellWriter.apply(sBuilder).append(kNewLineSeparator);
+			isFull = sBuilder.length() > kAllocateSize;
+		}
+		if (isFull) write();
 	}
 
 	public static void add(String key, Object customSecond, Object value) {
@@ -54,15 +103,188 @@ public class CSVWriter {
 		add(key, sTimer.get(), builder -> builder.append(value));
 	}
 
+	/**
+	 * Appends the current value of every channel with a single shared timestamp, without boxing or allocating.
+	 * In long format this is one {@code key,time,value} row per channel,
+	 * in wide format it is one {@code time,value...} row under a header of channel names.
+	 * Columns are fixed to the logged channels registered at the first row after {@link #init}.
+	 */
+	public static void addRow() {
+		addRow(sTimer.get());
+	}
+
+	public static void addRow(double time) {
+		boolean isFull;
+		synchronized (sLock) {
+			if (sColumns == null) {
+				sColumns = Telemetry.getLoggedChannels().toArray(new Channel[0]);
+				if (sIsWide) appendHeader();
+			}
+			if (sIsWide) {
+				sBuilder.append(time);
+				for (Channel channel : sColumns) {
+					sBuilder.append(kCommaDeliminator).append(channel.get());
+				}
+				sBuilder.append(kNewLineSeparator);
+			} else {
+				for (Channel channel : sColumns) {
+					sBuilder.append(channel.getName()).append(kCommaDeliminator)
+							.append(time).append(kCommaDeliminator)
+							.append(channel.get()).append(kNewLineSeparator);
+				}
+			}
+			isFull = sBuilder.length() > kAllocateSize;
+		}
+		if (isFull) write();
+	}
+
+	private static void appendHeader() {
+		sBuilder.append(kTimeColumn);
+		for (Channel channel : sColumns) {
+			sBuilder.append(kCommaDeliminator).append(channel.getName());
+		}
+		sBuilder.append(kNewLineSeparator);
+	}
+
+	/**
+	 * Flushes everything added so far to the file.
+	 * In background mode this only hands the buffer off to the writer thread and returns immediately.
+	 */
 	public static void write() {
-		System.out.println("Writing CSV...");
-		try (FileWriter fileWriter = new FileWriter(sCsvFile.toFile(), true)) {
-			fileWriter.append(sBuilder.toString());
+		synchronized (sLock) {
+			sIsFlushRequested = true;
+			if (sIsBackground) {
+				sLock.notifyAll();
+				return;
+			}
+		}
+		drain();
+	}
+
+	private static void writerLoop() {
+		while (!Thread.currentThread().isInterrupted()) {
+			synchronized (sLock) {
+				while (!sIsFlushRequested && !sIsResetRequested) {
+					try {
+						sLock.wait();
+					} catch (InterruptedException interruptedException) {
+						return;
+					}
+				}
+			}
+			drain();
+		}
+	}
+
+	/**
+	 * Swaps the front and back buffers then writes the back buffer out.
+	 * Only the writer thread, or the caller of {@link #write()} when not in background mode, touches the back buffer and channel.
+	 */
+	private static synchronized void drain() {
+		boolean isReset, isCompressed, isBackground;
+		synchronized (sLock) {
+			isReset = sIsResetRequested;
+			isCompressed = sIsCompressed;
+			isBackground = sIsBackground;
+			sIsResetRequested = false;
+			if (sIsFlushRequested) {
+				StringBuilder front = sBuilder;
+				sBuilder = sBackBuilder;
+				sBackBuilder = front;
+				sIsFlushRequested = false;
+			}
+		}
+		try {
+			if (isReset) reopen(isCompressed);
+			if (sBackBuilder.length() > 0) {
+				System.out.println("Writing CSV...");
+				writeBackBuffer(isCompressed, isBackground);
+			}
 		} catch (IOException writeException) {
 			System.err.println("Failed to write CSV:");
 			writeException.printStackTrace();
 		} finally {
-			sBuilder.setLength(0);
+			sBackBuilder.setLength(0);
+		}
+	}
+
+	private static void reopen(boolean isCompressed) throws IOException {
+		if (sChannel != null) {
+			sChannel.close();
+			sChannel = null;
+		}
+		Path file = isCompressed ? sCompressedFile : sCsvFile;
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException deleteException) {
+			deleteException.printStackTrace();
+			System.err.println("Failed to delete existing CSV file!");
+		}
+		sChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (isCompressed) {
+			ByteBuffer header = ByteBuffer.allocate(CompressedCsvInputStream.kFileHeaderSize).order(CompressedCsvInputStream.kByteOrder);
+			header.putInt(CompressedCsvInputStream.kMagic).putInt(CompressedCsvInputStream.kVersion).flip();
+			writeFully(header);
+		}
+	}
+
+	/**
+	 * @param isBackground Called from the writer thread, where syncing compressed blocks to disk does not hold up the robot loop
+	 */
+	private static void writeBackBuffer(boolean isCompressed, boolean isBackground) throws IOException {
+		if (sChannel == null) reopen(isCompressed);
+		int length = sBackBuilder.length();
+		if (sByteBuffer.capacity() < length) {
+			sByteBuffer = ByteBuffer.allocateDirect(length * 2);
+		}
+		sByteBuffer.clear();
+		// Everything we write is ASCII, so skip going through a charset encoder and its garbage
+		for (int i = 0; i < length; i++) {
+			sByteBuffer.put((byte) sBackBuilder.charAt(i));
+		}
+		sByteBuffer.flip();
+		if (isCompressed) {
+			writeFully(compressBackBuffer());
+			// Otherwise a power loss can lose every block still in the page cache, not just the one being written
+			if (isBackground) sChannel.force(false);
+		} else {
+			writeFully(sByteBuffer);
+		}
+	}
+
+	/**
+	 * Deflates the bytes of the back buffer on their own, so every block can be inflated without the ones before it.
+	 *
+	 * @return Block header followed by the deflated bytes, ready to write
+	 */
+	private static ByteBuffer compressBackBuffer() {
+		int length = sByteBuffer.remaining();
+		sCrc.reset();
+		sCrc.update(sByteBuffer.duplicate());
+		sDeflater.reset();
+		sDeflater.setInput(sByteBuffer);
+		sDeflater.finish();
+		sCompressedBuffer.clear();
+		sCompressedBuffer.position(CompressedCsvInputStream.kBlockHeaderSize);
+		while (!sDeflater.finished()) {
+			sDeflater.deflate(sCompressedBuffer);
+			if (!sCompressedBuffer.hasRemaining()) {
+				ByteBuffer grown = ByteBuffer.allocateDirect(sCompressedBuffer.capacity() * 2).order(CompressedCsvInputStream.kByteOrder);
+				sCompressedBuffer.flip();
+				grown.put(sCompressedBuffer);
+				sCompressedBuffer = grown;
+			}
+		}
+		sCompressedBuffer.flip();
+		sCompressedBuffer.putInt(0, sCompressedBuffer.limit() - CompressedCsvInputStream.kBlockHeaderSize)
+				.putInt(4, length)
+				.putInt(8, (int) sCrc.getValue());
+		return sCompressedBuffer;
+	}
+
+	private static void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			sChannel.write(buffer);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package team8.tuner.data;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks frames per CAN device, and publishes them as rates to the live graph about once a second
+ * under {@code can/<device>/configuredStatus} and {@code can/<device>/writes}.
+ * The status rate only covers the status frames the tuner configures, since reading a value only returns the latest cached status frame
+ * and costs no bus time. Frames left at their vendor default periods are not included, so it is a lower bound on what the device sends.
+ * Writes are counted as control and config frames are sent to the device.
+ */
+public class CanUsage {
+
+	public static class Device {
+
+		private final String mName;
+		private final LongAdder mWrites = new LongAdder();
+		private final Channel mConfiguredStatusRate, mWriteRate;
+		private volatile double mConfiguredStatusFrameRate;
+		private long mLastWrites;
+
+		private Device(String name) {
+			mName = name;
+			mConfiguredStatusRate = Telemetry.register(String.format("can/%s/configuredStatus", name), false);
+			mWriteRate = Telemetry.register(String.format("can/%s/writes", name), false);
+		}
+
+		/**
+		 * @param periodsMs Period of each status frame the tuner configures on the device, in milliseconds
+		 */
+		public void setStatusFramePeriods(int... periodsMs) {
+			double frameRate = 0.0;
+			for (int periodMs : periodsMs) {
+				if (periodMs > 0) frameRate += 1000.0 / periodMs;
+			}
+			mConfiguredStatusFrameRate = frameRate;
+		}
+
+		public void countWrite() {
+			mWrites.increment();
+		}
+
+		public String getName() {
+			return mName;
+		}
+	}
+
+	private static final double kPublishPeriod = 1.0;
+
+	private static final List<Device> sDevices = new CopyOnWriteArrayList<>();
+	private static double sLastPublishTime = Double.NaN;
+
+	private CanUsage() {
+	}
+
+	/**
+	 * Devices are registered from the threads which configure controllers, and kept for the life of the program so counts carry across sessions.
+	 */
+	public static synchronized Device register(String name) {
+		for (Device device : sDevices) {
+			if (device.mName.equals(name)) return device;
+		}
+		var device = new Device(name);
+		sDevices.add(device);
+		return device;
+	}
+
+	/**
+	 * Call once per loop, only does work when a publish period has passed.
+	 *
+	 * @param time Seconds on any clock which does not jump
+	 */
+	public static void publish(double time) {
+		if (Double.isNaN(sLastPublishTime)) sLastPublishTime = time;
+		double elapsed = time - sLastPublishTime;
+		if (elapsed < kPublishPeriod) return;
+		for (Device device : sDevices) {
+			long writes = device.mWrites.sum();
+			device.mConfiguredStatusRate.set(device.mConfiguredStatusFrameRate);
+			device.mWriteRate.set((writes - device.mLastWrites) / elapsed);
+			device.mLastWrites = writes;
+			LiveGraph.add(device.mConfiguredStatusRate);
+			LiveGraph.add(device.mWriteRate);
+		}
+		sLastPublishTime = time;
+	}
+}
@@ -0,0 +1,39 @@
+package team8.tuner.data;
+
+/**
+ * Handle to a named double value registered with {@link Telemetry}.
+ * Recording through a handle avoids looking up, boxing or formatting anything by name every loop.
+ */
+public class Channel {
+
+	private final String mName;
+	private final int mIndex;
+	private final boolean mIsLogged;
+	private double mValue;
+
+	Channel(String name, int index, boolean isLogged) {
+		mName = name;
+		mIndex = index;
+		mIsLogged = isLogged;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public int getIndex() {
+		return mIndex;
+	}
+
+	public boolean isLogged() {
+		return mIsLogged;
+	}
+
+	public double get() {
+		return mValue;
+	}
+
+	public void set(double value) {
+		mValue = value;
+	}
+}
@@ -0,0 +1,142 @@
+package team8.tuner.data;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streams the CSV text back out of a log written by {@link CSVWriter} in compressed mode, one block at a time.
+ * Does not touch anything robot specific so it can run on a desktop.
+ * <p>
+ * Layout, little endian: {@code int magic, int version}, then per flushed block {@code int compressed length, int length,
+ * int CRC32 of the uncompressed bytes} followed by the block deflated on its own.
+ * A block cut short or damaged, like the last one written during a brownout, ends the stream and everything before it is kept.
+ */
+public class CompressedCsvInputStream extends InputStream {
+
+	static final int kMagic = 0x5A435438; // "8TCZ"
+	static final int kVersion = 1;
+	static final ByteOrder kByteOrder = ByteOrder.LITTLE_ENDIAN;
+	static final int kFileHeaderSize = 8, kBlockHeaderSize = 12;
+	/**
+	 * Far above anything the writer flushes at once, so a torn length is not trusted with an allocation
+	 */
+	private static final int kMaxBlockSize = 1 << 26;
+
+	private final InputStream mInput;
+	private final ByteBuffer mHeader = ByteBuffer.allocate(kBlockHeaderSize).order(kByteOrder);
+	private final Inflater mInflater = new Inflater();
+	private final CRC32 mCrc = new CRC32();
+	private byte[] mCompressed = new byte[0], mBlock = new byte[0];
+	private int mPosition, mLimit;
+	private long mBlockCount;
+	private boolean mIsDone, mIsDamaged;
+
+	public CompressedCsvInputStream(Path path) throws IOException {
+		mInput = new BufferedInputStream(Files.newInputStream(path));
+		var header = ByteBuffer.wrap(mInput.readNBytes(kFileHeaderSize)).order(kByteOrder);
+		if (header.remaining() < kFileHeaderSize || header.getInt(0) != kMagic) {
+			mInput.close();
+			throw new IOException("Not a compressed tuner log: " + path);
+		}
+		int version = header.getInt(4);
+		if (version != kVersion) {
+			mInput.close();
+			throw new IOException(String.format("Unsupported compressed log version %d", version));
+		}
+	}
+
+	/**
+	 * @return Whether the file starts like a log written in compressed mode
+	 */
+	public static boolean isCompressed(Path path) throws IOException {
+		try (InputStream input = Files.newInputStream(path)) {
+			byte[] magic = input.readNBytes(Integer.BYTES);
+			return magic.length == Integer.BYTES && ByteBuffer.wrap(magic).order(kByteOrder).getInt() == kMagic;
+		}
+	}
+
+	/**
+	 * @return False at the end of the file or at the first damaged block
+	 */
+	private boolean nextBlock() throws IOException {
+		if (mIsDone) return false;
+		byte[] header = mInput.readNBytes(kBlockHeaderSize);
+		if (header.length == 0) return finish(false);
+		if (header.length < kBlockHeaderSize) return finish(true);
+		mHeader.clear();
+		mHeader.put(header);
+		int compressedLength = mHeader.getInt(0), length = mHeader.getInt(4), crc = mHeader.getInt(8);
+		if (compressedLength < 0 || compressedLength > kMaxBlockSize || length < 0 || length > kMaxBlockSize) return finish(true);
+		if (mCompressed.length < compressedLength) mCompressed = new byte[compressedLength];
+		if (mBlock.length < length) mBlock = new byte[length];
+		if (mInput.readNBytes(mCompressed, 0, compressedLength) < compressedLength) return finish(true);
+		mInflater.reset();
+		mInflater.setInput(mCompressed, 0, compressedLength);
+		try {
+			if (mInflater.inflate(mBlock, 0, length) != length || !mInflater.finished()) return finish(true);
+		} catch (DataFormatException corrupt) {
+			return finish(true);
+		}
+		mCrc.reset();
+		mCrc.update(mBlock, 0, length);
+		if ((int) mCrc.getValue() != crc) return finish(true);
+		mBlockCount++;
+		mPosition = 0;
+		mLimit = length;
+		return true;
+	}
+
+	private boolean finish(boolean isDamaged) {
+		mIsDone = true;
+		mIsDamaged = isDamaged;
+		if (isDamaged) {
+			System.err.printf("Block %d is cut short or damaged, keeping the %d blocks before it%n", mBlockCount, mBlockCount);
+		}
+		return false;
+	}
+
+	@Override
+	public int read() throws IOException {
+		while (mPosition == mLimit) {
+			if (!nextBlock()) return -1;
+		}
+		return mBlock[mPosition++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) return 0;
+		while (mPosition == mLimit) {
+			if (!nextBlock()) return -1;
+		}
+		int count = Math.min(length, mLimit - mPosition);
+		System.arraycopy(mBlock, mPosition, bytes, offset, count);
+		mPosition += count;
+		return count;
+	}
+
+	public long getBlockCount() {
+		return mBlockCount;
+	}
+
+	/**
+	 * @return Whether reading stopped at a block cut short or damaged instead of the end of the file
+	 */
+	public boolean isDamaged() {
+		return mIsDamaged;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mInflater.end();
+		mInput.close();
+	}
+}
@@ -0,0 +1,157 @@
+package team8.tuner.data;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams a log written by {@link CSVWriter} one row at a time, in either format, keeping only the latest value of each channel.
+ * In long format consecutive lines with the same time make up a row. Memory is bounded by the number of channels, not the length of the log.
+ * Desktop tools use this, so nothing here may touch WPILib.
+ */
+public class CsvLogReader implements Closeable {
+
+	private static final String kTimeColumn = "time,";
+
+	private final BufferedReader mReader;
+	private final Map<String, Double> mLatest = new HashMap<>();
+	/**
+	 * Column names of a wide log, null for a long log
+	 */
+	private final String[] mColumns;
+	private String[] mNextLine;
+	private double mTime = Double.NaN, mNextTime = Double.NaN;
+	/**
+	 * Value of the next line of a long log
+	 */
+	private double mNextValue;
+	private long mLineCount;
+
+	/**
+	 * Reads plain logs and ones written in compressed mode alike.
+	 */
+	public CsvLogReader(Path path) throws IOException {
+		this(CompressedCsvInputStream.isCompressed(path)
+				? new InputStreamReader(new CompressedCsvInputStream(path), StandardCharsets.US_ASCII)
+				: Files.newBufferedReader(path));
+	}
+
+	public CsvLogReader(Reader reader) throws IOException {
+		mReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		String firstLine = mReader.readLine();
+		if (firstLine != null && firstLine.startsWith(kTimeColumn)) {
+			mColumns = firstLine.split(",");
+			readLine();
+		} else {
+			mColumns = null;
+			parseLine(firstLine);
+		}
+	}
+
+	/**
+	 * Applies the next row to the latest values.
+	 *
+	 * @return False once the log is finished
+	 */
+	public boolean next() throws IOException {
+		if (mNextLine == null) return false;
+		mTime = mNextTime;
+		if (mColumns == null) {
+			do {
+				mLatest.put(mNextLine[0], mNextValue);
+				readLine();
+			} while (mNextLine != null && mNextTime == mTime);
+		} else {
+			for (int column = 1; column < mColumns.length; column++) {
+				// Empty cells are channels without a value on this row, like in a downsampled export
+				if (!mNextLine[column].isEmpty()) mLatest.put(mColumns[column], Double.parseDouble(mNextLine[column]));
+			}
+			readLine();
+		}
+		return true;
+	}
+
+	private void readLine() throws IOException {
+		parseLine(mReader.readLine());
+	}
+
+	/**
+	 * Skips blank lines and anything which is not a number, like a line cut short by a brownout.
+	 */
+	private void parseLine(String line) throws IOException {
+		while (line != null) {
+			mLineCount++;
+			String[] cells = line.split(",", -1);
+			try {
+				if (mColumns == null && cells.length == 3) {
+					mNextTime = Double.parseDouble(cells[1]);
+					mNextValue = Double.parseDouble(cells[2]);
+					mNextLine = cells;
+					return;
+				} else if (mColumns != null && cells.length == mColumns.length) {
+					mNextTime = Double.parseDouble(cells[0]);
+					mNextLine = cells;
+					return;
+				}
+			} catch (NumberFormatException malformed) {
+				// Fall through to the next line
+			}
+			line = mReader.readLine();
+		}
+		mNextLine = null;
+		mNextTime = Double.NaN;
+	}
+
+	/**
+	 * @return Time of the row last applied by {@link #next()}
+	 */
+	public double getTime() {
+		return mTime;
+	}
+
+	/**
+	 * @return Time of the row the next call to {@link #next()} applies, NaN at the end
+	 */
+	public double getNextTime() {
+		return mNextTime;
+	}
+
+	public boolean isDone() {
+		return mNextLine == null;
+	}
+
+	public boolean isWide() {
+		return mColumns != null;
+	}
+
+	public long getLineCount() {
+		return mLineCount;
+	}
+
+	/**
+	 * @return Latest value of the channel, or the default if it has not appeared yet
+	 */
+	public double get(String channel, double defaultValue) {
+		Double value = mLatest.get(channel);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * @return Live view of the latest value of every channel seen so far
+	 */
+	public Map<String, Double> getLatest() {
+		return mLatest;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mReader.close();
+	}
+}
@@ -0,0 +1,67 @@
+package team8.tuner.data;
+
+import java.util.Arrays;
+
+/**
+ * Fixed memory histogram of non-negative long values, such as durations in nanoseconds.
+ * Buckets are log linear, each power of two is split into sixteen sub buckets, so quantiles are within about six percent.
+ * Recording never allocates.
+ */
+public class Histogram {
+
+	private static final int kSubBucketBits = 4, kSubBucketCount = 1 << kSubBucketBits;
+	private static final int kBucketCount = (Long.SIZE - kSubBucketBits) * kSubBucketCount;
+
+	private final long[] mCounts = new long[kBucketCount];
+	private long mCount, mMax;
+
+	public void record(long value) {
+		value = Math.max(0L, value);
+		mCounts[index(value)]++;
+		mCount++;
+		mMax = Math.max(mMax, value);
+	}
+
+	/**
+	 * @param quantile Between zero and one, e.g. 0.99 for the 99th percentile
+	 * @return Approximate value at the quantile, zero if nothing has been recorded
+	 */
+	public long getQuantile(double quantile) {
+		if (mCount == 0L) return 0L;
+		long rank = Math.max(1L, (long) Math.ceil(quantile * mCount)), seen = 0L;
+		for (int index = 0; index < kBucketCount; index++) {
+			seen += mCounts[index];
+			if (seen >= rank) return Math.min(mMax, midpoint(index));
+		}
+		return mMax;
+	}
+
+	public long getMax() {
+		return mMax;
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	public void reset() {
+		Arrays.fill(mCounts, 0L);
+		mCount = 0L;
+		mMax = 0L;
+	}
+
+	private static int index(long value) {
+		if (value < kSubBucketCount) return (int) value;
+		int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = highestBit - kSubBucketBits;
+		int subBucket = (int) (value >>> shift) & (kSubBucketCount - 1);
+		return (shift + 1) * kSubBucketCount + subBucket;
+	}
+
+	private static long midpoint(int index) {
+		if (index < kSubBucketCount) return index;
+		int shift = index / kSubBucketCount - 1;
+		long lowest = (long) (kSubBucketCount + index % kSubBucketCount) << shift;
+		return lowest + ((1L << shift) >>> 1);
+	}
+}
@@ -1,15 +1,49 @@
 package team8.tuner.data;
 
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
+import java.util.Arrays;
+
+/**
+ * Publishes values to NetworkTables for live graphing on the dashboard.
+ * Channel values are only marked as pending when added, then published together by {@link #flush()} once per loop.
+ * Each channel has a decimation factor so that slow moving or expensive values are only sent every n loops.
+ */
 public class LiveGraph {
 
 	private static NetworkTable sLiveTable = NetworkTableInstance.getDefault().getTable("control-center-live");
+	/**
+	 * Indexed by {@link Channel#getIndex()}, entries are looked up once per channel
+	 */
+	private static NetworkTableEntry[] sChannelEntries = new NetworkTableEntry[0];
+	private static Channel[] sPendingChannels = new Channel[0];
+	private static int[] sDecimations = new int[0];
+	private static int sDefaultDecimation = 1;
+	private static boolean sIsFlushingNetwork;
+	private static long sLoopCount;
 
 	private LiveGraph() {
 	}
 
+	/**
+	 * @param defaultDecimation Publish channels without their own decimation every this many loops
+	 * @param isFlushingNetwork Push the batch over the network immediately instead of waiting for the NetworkTables update period
+	 */
+	public static void init(int defaultDecimation, boolean isFlushingNetwork) {
+		sDefaultDecimation = Math.max(1, defaultDecimation);
+		sIsFlushingNetwork = isFlushingNetwork;
+		Arrays.fill(sDecimations, 0);
+		Arrays.fill(sPendingChannels, null);
+		sLoopCount = 0L;
+	}
+
+	public static void setDecimation(Channel channel, int decimation) {
+		ensureCapacity(channel.getIndex());
+		sDecimations[channel.getIndex()] = Math.max(1, decimation);
+	}
+
 	public static void add(String key, double value) {
 		sLiveTable.getEntry(key).setDouble(value);
 	}
@@ -17,4 +51,53 @@ public class LiveGraph {
 	public static void add(String key, boolean value) {
 		sLiveTable.getEntry(key).setBoolean(value);
 	}
+
+	/**
+	 * Marks the current value of the channel to be published on the next {@link #flush()}.
+	 */
+	public static void add(Channel channel) {
+		int index = channel.getIndex();
+		ensureCapacity(index);
+		sPendingChannels[index] = channel;
+	}
+
+	/**
+	 * Publishes pending channels whose decimation lines up with this loop, call once at the end of every loop.
+	 * Channels sharing a decimation are staggered by index so they do not all land on the same loop.
+	 */
+	public static void flush() {
+		boolean isPublished = false;
+		for (int index = 0; index < sPendingChannels.length; index++) {
+			Channel channel = sPendingChannels[index];
+			if (channel == null) continue;
+			int decimation = sDecimations[index] == 0 ? sDefaultDecimation : sDecimations[index];
+			if ((sLoopCount + index) % decimation == 0) {
+				getEntry(channel).setDouble(channel.get());
+				sPendingChannels[index] = null;
+				isPublished = true;
+			}
+		}
+		if (isPublished && sIsFlushingNetwork) {
+			NetworkTableInstance.getDefault().flush();
+		}
+		sLoopCount++;
+	}
+
+	private static NetworkTableEntry getEntry(Channel channel) {
+		int index = channel.getIndex();
+		NetworkTableEntry entry = sChannelEntries[index];
+		if (entry == null) {
+			entry = sLiveTable.getEntry(channel.getName());
+			sChannelEntries[index] = entry;
+		}
+		return entry;
+	}
+
+	private static void ensureCapacity(int index) {
+		if (index < sPendingChannels.length) return;
+		int length = Math.max(index + 1, sPendingChannels.length * 2);
+		sChannelEntries = Arrays.copyOf(sChannelEntries, length);
+		sPendingChannels = Arrays.copyOf(sPendingChannels, length);
+		sDecimations = Arrays.copyOf(sDecimations, length);
+	}
 }
@@ -0,0 +1,103 @@
+package team8.tuner.data;
+
+/**
+ * Times each phase of the robot loop into {@link Histogram}s and counts loops which overran the period.
+ * Overruns are measured from the start of one loop to the start of the next, so a loop that was scheduled late counts as well.
+ * Quantiles are published to {@link LiveGraph} about once a second, nothing is allocated while timing.
+ */
+public class LoopProfiler {
+
+	private static final double kNanosecondsToMilliseconds = 1.0e-6;
+	/**
+	 * Loops start on a fixed schedule, so the time between starts jitters around the period by a little either way
+	 */
+	private static final double kOverrunTolerance = 0.1;
+
+	private final String[] mPhaseNames;
+	/**
+	 * One per phase followed by one for the whole loop
+	 */
+	private final Histogram[] mHistograms;
+	private final Channel[] mMedianChannels, mTailChannels, mMaxChannels;
+	private final Channel mOverrunChannel;
+	private final long mOverrunNanoseconds;
+	private final int mPublishPeriodLoops;
+	private long mLoopStartTime, mPhaseStartTime, mOverrunCount, mLoopCount;
+
+	/**
+	 * @param period Loop period in seconds, loops which start later than this after the previous one count as overruns
+	 */
+	public LoopProfiler(double period, String... phaseNames) {
+		mOverrunNanoseconds = Math.round(period * (1.0 + kOverrunTolerance) * 1.0e9);
+		mPublishPeriodLoops = (int) Math.max(1, Math.round(1.0 / period));
+		mPhaseNames = new String[phaseNames.length + 1];
+		System.arraycopy(phaseNames, 0, mPhaseNames, 0, phaseNames.length);
+		mPhaseNames[phaseNames.length] = "total";
+		mHistograms = new Histogram[mPhaseNames.length];
+		mMedianChannels = new Channel[mPhaseNames.length];
+		mTailChannels = new Channel[mPhaseNames.length];
+		mMaxChannels = new Channel[mPhaseNames.length];
+		for (int phase = 0; phase < mPhaseNames.length; phase++) {
+			mHistograms[phase] = new Histogram();
+			mMedianChannels[phase] = Telemetry.register(String.format("loop/%s/p50", mPhaseNames[phase]), false);
+			mTailChannels[phase] = Telemetry.register(String.format("loop/%s/p99", mPhaseNames[phase]), false);
+			mMaxChannels[phase] = Telemetry.register(String.format("loop/%s/max", mPhaseNames[phase]), false);
+		}
+		mOverrunChannel = Telemetry.register("loop/overruns", false);
+	}
+
+	public void startLoop() {
+		long now = System.nanoTime();
+		if (mLoopCount > 0 && now - mLoopStartTime > mOverrunNanoseconds) mOverrunCount++;
+		mLoopStartTime = now;
+		mPhaseStartTime = now;
+	}
+
+	/**
+	 * Records the time since the previous phase ended, or since the loop started.
+	 *
+	 * @param phase Index into the phase names given at construction
+	 */
+	public void endPhase(int phase) {
+		long now = System.nanoTime();
+		mHistograms[phase].record(now - mPhaseStartTime);
+		mPhaseStartTime = now;
+	}
+
+	public void endLoop() {
+		long duration = System.nanoTime() - mLoopStartTime;
+		mHistograms[mPhaseNames.length - 1].record(duration);
+		if (++mLoopCount % mPublishPeriodLoops == 0) publish();
+	}
+
+	private void publish() {
+		for (int phase = 0; phase < mPhaseNames.length; phase++) {
+			Histogram histogram = mHistograms[phase];
+			mMedianChannels[phase].set(histogram.getQuantile(0.5) * kNanosecondsToMilliseconds);
+			mTailChannels[phase].set(histogram.getQuantile(0.99) * kNanosecondsToMilliseconds);
+			mMaxChannels[phase].set(histogram.getMax() * kNanosecondsToMilliseconds);
+			LiveGraph.add(mMedianChannels[phase]);
+			LiveGraph.add(mTailChannels[phase]);
+			LiveGraph.add(mMaxChannels[phase]);
+		}
+		mOverrunChannel.set(mOverrunCount);
+		LiveGraph.add(mOverrunChannel);
+	}
+
+	/**
+	 * @return Table of quantiles in milliseconds for every phase
+	 */
+	public String getSummary() {
+		var summary = new StringBuilder(String.format("Loop timing over %d loops, %d started over %.1f ms after the previous one:%n",
+				mLoopCount, mOverrunCount, mOverrunNanoseconds * kNanosecondsToMilliseconds));
+		summary.append(String.format("%-16s %10s %10s %10s%n", "phase", "p50 ms", "p99 ms", "max ms"));
+		for (int phase = 0; phase < mPhaseNames.length; phase++) {
+			Histogram histogram = mHistograms[phase];
+			summary.append(String.format("%-16s %10.3f %10.3f %10.3f%n", mPhaseNames[phase],
+					histogram.getQuantile(0.5) * kNanosecondsToMilliseconds,
+					histogram.getQuantile(0.99) * kNanosecondsToMilliseconds,
+					histogram.getMax() * kNanosecondsToMilliseconds));
+		}
+		return summary.toString();
+	}
+}
@@ -0,0 +1,70 @@
+package team8.tuner.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free single producer single consumer ring of fixed width samples, each a row of doubles.
+ * All storage is allocated up front. When the consumer falls behind new samples are dropped and counted instead of blocking the producer.
+ */
+public class SampleRing {
+
+	private final double[] mData;
+	private final int mWidth, mMask;
+	/**
+	 * Head is the next sample to read, tail is the next slot to write
+	 */
+	private final AtomicLong mHead = new AtomicLong(), mTail = new AtomicLong();
+	private long mProducerTail;
+	private volatile long mDroppedCount;
+
+	/**
+	 * @param capacity Rounded up to a power of two
+	 * @param width    Number of values per sample
+	 */
+	public SampleRing(int capacity, int width) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		mData = new double[size * width];
+		mWidth = width;
+		mMask = size - 1;
+	}
+
+	/**
+	 * Producer only. Reserves the next slot, fill it with {@link #set(int, double)} then make it visible with {@link #publish()}.
+	 *
+	 * @return Whether there was room, if not the sample is dropped
+	 */
+	public boolean tryClaim() {
+		mProducerTail = mTail.get();
+		if (mProducerTail - mHead.get() > mMask) {
+			mDroppedCount++;
+			return false;
+		}
+		return true;
+	}
+
+	public void set(int field, double value) {
+		mData[(int) (mProducerTail & mMask) * mWidth + field] = value;
+	}
+
+	public void publish() {
+		mTail.lazySet(mProducerTail + 1);
+	}
+
+	/**
+	 * Consumer only.
+	 *
+	 * @param sample Filled with the oldest sample, must be at least as wide as the ring
+	 * @return False when there was nothing to read
+	 */
+	public boolean poll(double[] sample) {
+		long head = mHead.get();
+		if (head == mTail.get()) return false;
+		System.arraycopy(mData, (int) (head & mMask) * mWidth, sample, 0, mWidth);
+		mHead.lazySet(head + 1);
+		return true;
+	}
+
+	public long getDroppedCount() {
+		return mDroppedCount;
+	}
+}
@@ -0,0 +1,63 @@
+package team8.tuner.data;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import team8.tuner.controller.Controller;
+
+/**
+ * Reads the master controller on a dedicated {@link Notifier} at a higher rate than the robot loop.
+ * Samples are pushed into a {@link SampleRing} which the robot loop drains into the log.
+ */
+public class Sampler {
+
+	public static final int kTime = 0, kPosition = 1, kVelocity = 2, kOutput = 3, kCurrent = 4, kWidth = 5;
+	/**
+	 * Seconds of samples the ring can hold before the consumer has to catch up
+	 */
+	private static final double kBufferedDuration = 0.25;
+
+	private final Controller mController;
+	private final SampleRing mRing;
+	private final Notifier mNotifier;
+	private final double mStartTime;
+
+	/**
+	 * @param startTime FPGA timestamp subtracted from every sample time, so they line up with the rest of the log
+	 */
+	public Sampler(Controller controller, double frequency, double startTime) {
+		mController = controller;
+		mStartTime = startTime;
+		mRing = new SampleRing((int) Math.ceil(frequency * kBufferedDuration), kWidth);
+		mNotifier = new Notifier(this::sample);
+		mNotifier.setName("Sampler");
+		mNotifier.startPeriodic(1.0 / frequency);
+	}
+
+	private void sample() {
+		if (mRing.tryClaim()) {
+			mRing.set(kTime, Timer.getFPGATimestamp() - mStartTime);
+			mRing.set(kPosition, mController.getPosition());
+			mRing.set(kVelocity, mController.getVelocity());
+			mRing.set(kOutput, mController.getAppliedPercentOutput());
+			mRing.set(kCurrent, mController.getOutputCurrent());
+			mRing.publish();
+		}
+	}
+
+	/**
+	 * @param sample Filled with the oldest sample, indexed by the constants in this class
+	 * @return False when caught up
+	 */
+	public boolean poll(double[] sample) {
+		return mRing.poll(sample);
+	}
+
+	public long getDroppedCount() {
+		return mRing.getDroppedCount();
+	}
+
+	public void close() {
+		mNotifier.stop();
+		mNotifier.close();
+	}
+}
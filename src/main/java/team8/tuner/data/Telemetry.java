@@ -0,0 +1,50 @@
+package team8.tuner.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of every {@link Channel}, shared by {@link CSVWriter} and {@link LiveGraph}.
+ * Register channels once at initialization and keep the handles, indices are stable for the life of the program.
+ */
+public class Telemetry {
+
+	private static final List<Channel> sChannels = new ArrayList<>();
+	private static final Map<String, Channel> sChannelsByName = new HashMap<>();
+
+	private Telemetry() {
+	}
+
+	/**
+	 * @return Existing channel with this name, otherwise a newly registered one which is written to the log file
+	 */
+	public static Channel register(String name) {
+		return register(name, true);
+	}
+
+	/**
+	 * @param isLogged Whether the channel is written to the log file, otherwise it is only for {@link LiveGraph}
+	 */
+	public static synchronized Channel register(String name, boolean isLogged) {
+		return sChannelsByName.computeIfAbsent(name, channelName -> {
+			var channel = new Channel(channelName, sChannels.size(), isLogged);
+			sChannels.add(channel);
+			return channel;
+		});
+	}
+
+	public static synchronized List<Channel> getChannels() {
+		return Collections.unmodifiableList(new ArrayList<>(sChannels));
+	}
+
+	public static synchronized List<Channel> getLoggedChannels() {
+		var loggedChannels = new ArrayList<Channel>();
+		for (Channel channel : sChannels) {
+			if (channel.isLogged()) loggedChannels.add(channel);
+		}
+		return Collections.unmodifiableList(loggedChannels);
+	}
+}
@@ -0,0 +1,27 @@
+package team8.tuner.sim;
+
+/**
+ * Published 12 volt characteristics of common FRC motors.
+ */
+public enum Motor {
+	NEO(2.6, 105.0, 5676.0, 1.8),
+	NEO_550(0.97, 100.0, 11000.0, 1.4),
+	FALCON_500(4.69, 257.0, 6380.0, 1.5),
+	CIM(2.42, 133.0, 5310.0, 2.7),
+	MINI_CIM(1.41, 89.0, 5840.0, 3.0),
+	BAG(0.43, 53.0, 13180.0, 1.8),
+	PRO_775(0.71, 134.0, 18730.0, 0.7);
+
+	static final double kNominalVoltage = 12.0;
+
+	/**
+	 * Ohms, newton meters per amp and radians per second per volt
+	 */
+	final double mResistance, mTorqueConstant, mVelocityConstant;
+
+	Motor(double stallTorque, double stallCurrent, double freeSpeedRpm, double freeCurrent) {
+		mResistance = kNominalVoltage / stallCurrent;
+		mTorqueConstant = stallTorque / stallCurrent;
+		mVelocityConstant = freeSpeedRpm * 2.0 * Math.PI / 60.0 / (kNominalVoltage - mResistance * freeCurrent);
+	}
+}
@@ -0,0 +1,147 @@
+package team8.tuner.sim;
+
+import team8.tuner.config.Config.PlantConfig;
+
+/**
+ * Brushed DC motor model driving a mechanism through a gearbox. State is the output shaft angle and angular velocity.
+ * Arms measure their angle from horizontal, so gravity is strongest at zero.
+ */
+public class Plant {
+
+	public enum Type {
+		/**
+		 * Only the configured moment of inertia, for example a bare motor or roller
+		 */
+		DC_MOTOR,
+		FLYWHEEL,
+		/**
+		 * Mass on a drum of the configured radius, lifted against gravity
+		 */
+		ELEVATOR,
+		/**
+		 * Rod of the configured mass and length pivoting at one end, against gravity
+		 */
+		ARM
+	}
+
+	private static final double kGravity = 9.81;
+	/**
+	 * Largest integration step as a fraction of the mechanical time constant, keeps explicit integration stable for light loads
+	 */
+	private static final double kStepFraction = 0.25;
+
+	private final PlantConfig mConfig;
+	private final double mInertia, mGravityTorque, mMaxStep;
+	private final double mMinimumAngle, mMaximumAngle;
+	private double mAngle, mAngularVelocity, mCurrent;
+
+	/**
+	 * @throws IllegalArgumentException When the config has no inertia, which would make the acceleration infinite
+	 */
+	public Plant(PlantConfig config) {
+		String problem = validate(config);
+		if (problem != null) throw new IllegalArgumentException(problem);
+		mConfig = config;
+		mInertia = getInertia(config);
+		switch (config.type) {
+			case ELEVATOR:
+				mGravityTorque = config.mass * kGravity * config.drumRadius;
+				break;
+			case ARM:
+				mGravityTorque = config.mass * kGravity * config.length * 0.5;
+				break;
+			default:
+				mGravityTorque = 0.0;
+				break;
+		}
+		Motor motor = config.motor;
+		double timeConstant = mInertia * motor.mResistance * motor.mVelocityConstant
+				/ (motor.mTorqueConstant * config.gearing * config.gearing * config.motorCount);
+		mMaxStep = Math.max(1.0e-6, timeConstant * kStepFraction);
+		mMinimumAngle = config.minimumRotations == null ? Double.NEGATIVE_INFINITY : config.minimumRotations * 2.0 * Math.PI;
+		mMaximumAngle = config.maximumRotations == null ? Double.POSITIVE_INFINITY : config.maximumRotations * 2.0 * Math.PI;
+	}
+
+	/**
+	 * @return What makes the config impossible to simulate, null when it can be
+	 */
+	public static String validate(PlantConfig config) {
+		if (config.type == null || config.motor == null) return "Plant needs a type and motor";
+		if (config.motorCount < 1 || !(config.gearing > 0.0)) return "Plant needs at least one motor and a positive gearing";
+		if (getInertia(config) > 0.0) return null;
+		switch (config.type) {
+			case ELEVATOR:
+				return "Elevator plant needs a positive mass and drum radius";
+			case ARM:
+				return "Arm plant needs a positive moi, or a positive mass and length";
+			default:
+				return String.format("%s plant needs a positive moi", config.type);
+		}
+	}
+
+	/**
+	 * @return Kilogram square meters at the output
+	 */
+	private static double getInertia(PlantConfig config) {
+		switch (config.type) {
+			case ELEVATOR:
+				return config.mass * config.drumRadius * config.drumRadius;
+			case ARM:
+				return config.moi > 0.0 ? config.moi : config.mass * config.length * config.length / 3.0;
+			default:
+				return config.moi;
+		}
+	}
+
+	/**
+	 * @param voltage Applied to every motor
+	 * @param dt      Seconds to advance, split into smaller steps if the mechanism is light
+	 */
+	public void step(double voltage, double dt) {
+		int steps = (int) Math.ceil(dt / mMaxStep);
+		double subStep = dt / steps;
+		Motor motor = mConfig.motor;
+		for (int step = 0; step < steps; step++) {
+			double motorVelocity = mAngularVelocity * mConfig.gearing;
+			double current = (voltage - motorVelocity / motor.mVelocityConstant) / motor.mResistance;
+			double torque = mConfig.motorCount * motor.mTorqueConstant * current * mConfig.gearing;
+			switch (mConfig.type) {
+				case ELEVATOR:
+					torque -= mGravityTorque;
+					break;
+				case ARM:
+					torque -= mGravityTorque * Math.cos(mAngle);
+					break;
+				default:
+					break;
+			}
+			mAngularVelocity += torque / mInertia * subStep;
+			mAngle += mAngularVelocity * subStep;
+			if (mAngle < mMinimumAngle || mAngle > mMaximumAngle) {
+				mAngle = Math.max(mMinimumAngle, Math.min(mMaximumAngle, mAngle));
+				mAngularVelocity = 0.0;
+			}
+			mCurrent = Math.abs(current);
+		}
+	}
+
+	public void setRotations(double rotations) {
+		mAngle = rotations * 2.0 * Math.PI;
+		mAngularVelocity = 0.0;
+	}
+
+	public double getRotations() {
+		return mAngle / (2.0 * Math.PI);
+	}
+
+	public double getRotationsPerSecond() {
+		return mAngularVelocity / (2.0 * Math.PI);
+	}
+
+	/**
+	 * @return Current through each motor in amps
+	 */
+	public double getCurrent() {
+		return mCurrent;
+	}
+}
@@ -0,0 +1,74 @@
+package team8.tuner.sim;
+
+import team8.tuner.analysis.StepAnalyzer;
+import team8.tuner.analysis.StepAnalyzer.StepResult;
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.controller.Controller;
+import team8.tuner.controller.Controller.ControlMode;
+import team8.tuner.controller.Simulated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a sequence of set points against a {@link Simulated} master in stepped time, without the robot loop or any hardware.
+ * Outputs are applied the same way as the robot does in test mode, so a session of any length takes only as long as the physics.
+ */
+public class SimulatedSession {
+
+	public static class Summary {
+		public final List<StepResult> steps = new ArrayList<>();
+		/**
+		 * Integral of absolute applied percent output in seconds
+		 */
+		public double effort;
+		public double duration;
+	}
+
+	public interface SampleListener {
+
+		void onSample(double time, double reference, Controller master);
+	}
+
+	private final MasterConfig mConfig;
+	private final double mLoopPeriod, mSettleWindow;
+
+	/**
+	 * @param loopPeriod   Seconds between output updates, like the robot loop period
+	 * @param settleWindow Seconds a step has to stay within the allowable error to count as settled
+	 */
+	public SimulatedSession(MasterConfig config, double loopPeriod, double settleWindow) {
+		mConfig = config;
+		mLoopPeriod = loopPeriod;
+		mSettleWindow = settleWindow;
+	}
+
+	/**
+	 * @param holdTime Seconds to hold each set point before moving to the next
+	 * @param listener Called after every loop, may be null
+	 */
+	public Summary run(ControlMode controlMode, double[] setPoints, double holdTime, SampleListener listener) {
+		var summary = new Summary();
+		var master = new Simulated(mConfig);
+		var analyzer = new StepAnalyzer(mConfig.gains.allowableError, mSettleWindow);
+		int loopsPerSetPoint = (int) Math.round(holdTime / mLoopPeriod);
+		double time = 0.0;
+		for (double setPoint : setPoints) {
+			for (int loop = 0; loop < loopsPerSetPoint; loop++) {
+				double arbitraryFeedForward = Controller.getArbitraryFeedForward(mConfig, master.getPosition());
+				master.setOutput(controlMode, setPoint, arbitraryFeedForward);
+				master.step(mLoopPeriod);
+				time += mLoopPeriod;
+				double measurement = controlMode == ControlMode.SMART_VELOCITY ? master.getVelocity() : master.getPosition();
+				if (analyzer.update(time, setPoint, measurement)) {
+					summary.steps.add(analyzer.getResult().copy());
+				}
+				summary.effort += Math.abs(master.getAppliedPercentOutput()) * mLoopPeriod;
+				if (listener != null) listener.onSample(time, setPoint, master);
+			}
+		}
+		if (analyzer.finish()) summary.steps.add(analyzer.getResult().copy());
+		summary.duration = time;
+		return summary;
+	}
+}
@@ -0,0 +1,54 @@
+package team8.tuner.tools;
+
+import team8.tuner.data.BinaryLogReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Desktop tool which converts a binary log into a wide CSV with a {@code time} column followed by a column per channel.
+ * <p>
+ * Usage: {@code BinaryLogConverter canlog.bin [canlog.csv]}
+ */
+public final class BinaryLogConverter {
+
+	private BinaryLogConverter() {
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: BinaryLogConverter <input.bin> [output.csv]");
+			System.exit(1);
+		}
+		Path input = Paths.get(args[0]);
+		Path output = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0].replaceFirst("\\.bin$", "") + ".csv");
+		var reader = new BinaryLogReader(input);
+		try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+			writer.write("time");
+			for (String name : reader.getChannelNames()) {
+				writer.write(',');
+				writer.write(name);
+			}
+			writer.newLine();
+			var row = new StringBuilder();
+			reader.forEachRecord((time, values) -> {
+				row.setLength(0);
+				row.append(time);
+				for (double value : values) {
+					row.append(',').append(value);
+				}
+				try {
+					writer.write(row.toString());
+					writer.newLine();
+				} catch (IOException writeException) {
+					throw new UncheckedIOException(writeException);
+				}
+			});
+		}
+		System.out.printf("Converted %d records from %s to %s%n", reader.getRecordCount(), input, output);
+	}
+}
@@ -0,0 +1,37 @@
+package team8.tuner.tools;
+
+import team8.tuner.data.CompressedCsvInputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Desktop tool which decompresses a log written with {@code compressCsv} back into the plain CSV it would have been.
+ * A last block cut short by a brownout is reported and dropped, everything before it is kept.
+ * <p>
+ * Usage: {@code CompressedCsvConverter canlog.csv.z [canlog.csv]}
+ */
+public final class CompressedCsvConverter {
+
+	private CompressedCsvConverter() {
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: CompressedCsvConverter <input.csv.z> [output.csv]");
+			System.exit(1);
+		}
+		Path input = Paths.get(args[0]);
+		Path output = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0].replaceFirst("\\.z$", "").replaceFirst("\\.csv$", "") + ".csv");
+		boolean isDamaged;
+		try (var reader = new CompressedCsvInputStream(input); OutputStream writer = Files.newOutputStream(output)) {
+			long bytes = reader.transferTo(writer);
+			isDamaged = reader.isDamaged();
+			System.out.printf("Decompressed %d blocks, %d bytes from %s to %s%n", reader.getBlockCount(), bytes, input, output);
+		}
+		if (isDamaged) System.exit(2);
+	}
+}
@@ -0,0 +1,358 @@
+package team8.tuner.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import team8.tuner.analysis.StepAnalyzer.StepResult;
+import team8.tuner.config.Config;
+import team8.tuner.config.Config.MasterConfig;
+import team8.tuner.config.Config.SmartGains;
+import team8.tuner.controller.Controller.ControlMode;
+import team8.tuner.sim.SimulatedSession;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Desktop tool which searches master gains against the simulated plant of a config.
+ * Every candidate runs the A, B, X then Y set points, scored on mean overshoot, mean settling time and control effort.
+ * Candidates are evaluated in parallel on a fork join pool, then the Pareto front is printed
+ * and the candidate with the lowest combined cost is written as a new config next to the deployed ones.
+ * <p>
+ * Usage: {@code GainOptimizer config.json GRID|RANDOM|NELDER_MEAD [evaluations=200] [hold=3] [mode=SMART_MOTION] p=0:0.1 d=0:1 ...}
+ * <p>
+ * Ranges are given as {@code gain=min:max} for any of p, i, d, f, a and v, every other gain keeps its value from the config.
+ */
+public final class GainOptimizer {
+
+	public enum Strategy {
+		GRID, RANDOM, NELDER_MEAD
+	}
+
+	private enum Gain {
+		P, I, D, F, A, V;
+
+		void set(SmartGains gains, double value) {
+			switch (this) {
+				case P:
+					gains.p = value;
+					break;
+				case I:
+					gains.i = value;
+					break;
+				case D:
+					gains.d = value;
+					break;
+				case F:
+					gains.f = value;
+					break;
+				case A:
+					gains.a = value;
+					break;
+				case V:
+					gains.v = value;
+					break;
+			}
+		}
+	}
+
+	private static class Candidate {
+		final double[] values;
+		double overshoot, settlingTime, effort, cost;
+
+		Candidate(double[] values) {
+			this.values = values;
+		}
+
+		boolean dominates(Candidate other) {
+			return overshoot <= other.overshoot && settlingTime <= other.settlingTime && effort <= other.effort
+					&& (overshoot < other.overshoot || settlingTime < other.settlingTime || effort < other.effort);
+		}
+	}
+
+	/**
+	 * Evaluates a range of candidates, splitting until a range is small enough to run on one worker
+	 */
+	private class EvaluateTask extends RecursiveAction {
+
+		private final List<Candidate> mCandidates;
+		private final int mStart, mEnd;
+
+		EvaluateTask(List<Candidate> candidates, int start, int end) {
+			mCandidates = candidates;
+			mStart = start;
+			mEnd = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mStart <= 1) {
+				for (int index = mStart; index < mEnd; index++) evaluate(mCandidates.get(index));
+				return;
+			}
+			int middle = (mStart + mEnd) >>> 1;
+			invokeAll(new EvaluateTask(mCandidates, mStart, middle), new EvaluateTask(mCandidates, middle, mEnd));
+		}
+	}
+
+	private static final double kLoopPeriod = 0.02;
+	private static final long kRandomSeed = 8L;
+	private static final String kConfigFolder = "src/main/deploy/config";
+
+	private final ObjectMapper mMapper = new ObjectMapper();
+	private final ForkJoinPool mPool = ForkJoinPool.commonPool();
+	private final Config mConfig;
+	private final Gain[] mGains;
+	private final double[] mMinimums, mMaximums;
+	private final double[] mSetPoints;
+	private final double mHoldTime;
+	private final ControlMode mControlMode;
+	private final List<Candidate> mEvaluated = Collections.synchronizedList(new ArrayList<>());
+
+	private GainOptimizer(Config config, Map<Gain, double[]> ranges, double holdTime, ControlMode controlMode) {
+		mConfig = config;
+		mGains = ranges.keySet().toArray(new Gain[0]);
+		mMinimums = new double[mGains.length];
+		mMaximums = new double[mGains.length];
+		for (int dimension = 0; dimension < mGains.length; dimension++) {
+			double[] range = ranges.get(mGains[dimension]);
+			mMinimums[dimension] = range[0];
+			mMaximums[dimension] = range[1];
+		}
+		mSetPoints = new double[]{config.aSetPoint, config.bSetPoint, config.xSetPoint, config.ySetPoint};
+		mHoldTime = holdTime;
+		mControlMode = controlMode;
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: GainOptimizer <config.json> <GRID|RANDOM|NELDER_MEAD> [evaluations=200] [hold=3] [mode=SMART_MOTION] <gain=min:max>...");
+			System.exit(1);
+		}
+		Path input = Paths.get(args[0]);
+		Config config = new ObjectMapper().readValue(input.toFile(), Config.class);
+		Strategy strategy = Strategy.valueOf(args[1]);
+		int evaluations = 200;
+		double holdTime = 3.0;
+		ControlMode controlMode = ControlMode.SMART_MOTION;
+		Map<Gain, double[]> ranges = new EnumMap<>(Gain.class);
+		for (int index = 2; index < args.length; index++) {
+			String[] option = args[index].split("=", 2);
+			switch (option[0]) {
+				case "evaluations":
+					evaluations = Integer.parseInt(option[1]);
+					break;
+				case "hold":
+					holdTime = Double.parseDouble(option[1]);
+					break;
+				case "mode":
+					controlMode = ControlMode.valueOf(option[1]);
+					break;
+				default:
+					String[] range = option[1].split(":");
+					ranges.put(Gain.valueOf(option[0].toUpperCase(Locale.ROOT)),
+							new double[]{Double.parseDouble(range[0]), Double.parseDouble(range[1])});
+					break;
+			}
+		}
+		if (ranges.isEmpty()) {
+			System.err.println("No gain ranges given!");
+			System.exit(1);
+		}
+		var optimizer = new GainOptimizer(config, ranges, holdTime, controlMode);
+		long startTime = System.nanoTime();
+		switch (strategy) {
+			case GRID:
+				optimizer.grid(evaluations);
+				break;
+			case RANDOM:
+				optimizer.random(evaluations);
+				break;
+			case NELDER_MEAD:
+				optimizer.nelderMead(evaluations);
+				break;
+		}
+		System.out.printf("Evaluated %d candidates in %.1f s on %d workers%n",
+				optimizer.mEvaluated.size(), (System.nanoTime() - startTime) * 1.0e-9, optimizer.mPool.getParallelism());
+		optimizer.report(input);
+	}
+
+	private void grid(int evaluations) {
+		int perDimension = Math.max(2, (int) Math.floor(Math.pow(evaluations, 1.0 / mGains.length)));
+		int total = (int) Math.pow(perDimension, mGains.length);
+		List<Candidate> candidates = new ArrayList<>(total);
+		for (int index = 0; index < total; index++) {
+			double[] values = new double[mGains.length];
+			int remaining = index;
+			for (int dimension = 0; dimension < mGains.length; dimension++) {
+				double fraction = (remaining % perDimension) / (perDimension - 1.0);
+				values[dimension] = mMinimums[dimension] + fraction * (mMaximums[dimension] - mMinimums[dimension]);
+				remaining /= perDimension;
+			}
+			candidates.add(new Candidate(values));
+		}
+		evaluateAll(candidates);
+	}
+
+	private void random(int evaluations) {
+		var random = new Random(kRandomSeed);
+		List<Candidate> candidates = new ArrayList<>(evaluations);
+		for (int index = 0; index < evaluations; index++) {
+			double[] values = new double[mGains.length];
+			for (int dimension = 0; dimension < mGains.length; dimension++) {
+				values[dimension] = mMinimums[dimension] + random.nextDouble() * (mMaximums[dimension] - mMinimums[dimension]);
+			}
+			candidates.add(new Candidate(values));
+		}
+		evaluateAll(candidates);
+	}
+
+	/**
+	 * Nelder-Mead is sequential, so each iteration speculatively evaluates the reflection, expansion and both contractions together.
+	 * Starts from the config gains clamped into range, with a simplex spanning a quarter of each range.
+	 */
+	private void nelderMead(int evaluations) {
+		int dimensions = mGains.length;
+		List<Candidate> simplex = new ArrayList<>(dimensions + 1);
+		var start = new double[dimensions];
+		for (int dimension = 0; dimension < dimensions; dimension++) {
+			start[dimension] = clamp(dimension, getConfigValue(mGains[dimension]));
+		}
+		simplex.add(new Candidate(start));
+		for (int dimension = 0; dimension < dimensions; dimension++) {
+			double[] vertex = start.clone();
+			double step = 0.25 * (mMaximums[dimension] - mMinimums[dimension]);
+			vertex[dimension] = vertex[dimension] + step > mMaximums[dimension] ? vertex[dimension] - step : vertex[dimension] + step;
+			simplex.add(new Candidate(vertex));
+		}
+		evaluateAll(simplex);
+		while (mEvaluated.size() < evaluations) {
+			simplex.sort(Comparator.comparingDouble(candidate -> candidate.cost));
+			Candidate best = simplex.get(0), worst = simplex.get(dimensions), secondWorst = simplex.get(dimensions - 1);
+			var centroid = new double[dimensions];
+			for (int vertex = 0; vertex < dimensions; vertex++) {
+				for (int dimension = 0; dimension < dimensions; dimension++) {
+					centroid[dimension] += simplex.get(vertex).values[dimension] / dimensions;
+				}
+			}
+			Candidate reflection = along(centroid, worst, 1.0), expansion = along(centroid, worst, 2.0),
+					outside = along(centroid, worst, 0.5), inside = along(centroid, worst, -0.5);
+			evaluateAll(List.of(reflection, expansion, outside, inside));
+			Candidate replacement = null;
+			if (reflection.cost < best.cost) {
+				replacement = expansion.cost < reflection.cost ? expansion : reflection;
+			} else if (reflection.cost < secondWorst.cost) {
+				replacement = reflection;
+			} else if (reflection.cost < worst.cost) {
+				if (outside.cost <= reflection.cost) replacement = outside;
+			} else if (inside.cost < worst.cost) {
+				replacement = inside;
+			}
+			if (replacement != null) {
+				simplex.set(dimensions, replacement);
+			} else {
+				List<Candidate> shrunk = new ArrayList<>(dimensions);
+				for (int vertex = 1; vertex <= dimensions; vertex++) {
+					double[] values = new double[dimensions];
+					for (int dimension = 0; dimension < dimensions; dimension++) {
+						values[dimension] = clamp(dimension, (best.values[dimension] + simplex.get(vertex).values[dimension]) * 0.5);
+					}
+					shrunk.add(new Candidate(values));
+				}
+				evaluateAll(shrunk);
+				for (int vertex = 1; vertex <= dimensions; vertex++) simplex.set(vertex, shrunk.get(vertex - 1));
+			}
+		}
+	}
+
+	private Candidate along(double[] centroid, Candidate worst, double coefficient) {
+		double[] values = new double[centroid.length];
+		for (int dimension = 0; dimension < centroid.length; dimension++) {
+			values[dimension] = clamp(dimension, centroid[dimension] + coefficient * (centroid[dimension] - worst.values[dimension]));
+		}
+		return new Candidate(values);
+	}
+
+	private double clamp(int dimension, double value) {
+		return Math.max(mMinimums[dimension], Math.min(mMaximums[dimension], value));
+	}
+
+	private double getConfigValue(Gain gain) {
+		SmartGains gains = mConfig.master.gains;
+		switch (gain) {
+			case P:
+				return gains.p;
+			case I:
+				return gains.i;
+			case D:
+				return gains.d;
+			case F:
+				return gains.f;
+			case A:
+				return gains.a;
+			default:
+				return gains.v;
+		}
+	}
+
+	private void evaluateAll(List<Candidate> candidates) {
+		mPool.invoke(new EvaluateTask(candidates, 0, candidates.size()));
+	}
+
+	/**
+	 * Unsettled steps count as taking the whole hold time, and the combined cost weighs each objective against its worst case.
+	 */
+	private void evaluate(Candidate candidate) {
+		MasterConfig master = createMaster(candidate);
+		var session = new SimulatedSession(master, kLoopPeriod, mConfig.stepSettleWindow);
+		SimulatedSession.Summary summary = session.run(mControlMode, mSetPoints, mHoldTime, null);
+		for (StepResult step : summary.steps) {
+			candidate.overshoot += step.overshoot;
+			candidate.settlingTime += step.isSettled ? step.settlingTime : mHoldTime;
+		}
+		int steps = Math.max(1, summary.steps.size());
+		candidate.overshoot /= steps;
+		candidate.settlingTime /= steps;
+		candidate.effort = summary.effort / summary.duration;
+		candidate.cost = candidate.overshoot / 100.0 + candidate.settlingTime / mHoldTime + candidate.effort;
+		mEvaluated.add(candidate);
+	}
+
+	private MasterConfig createMaster(Candidate candidate) {
+		MasterConfig master = mMapper.convertValue(mConfig.master, MasterConfig.class);
+		for (int dimension = 0; dimension < mGains.length; dimension++) {
+			mGains[dimension].set(master.gains, candidate.values[dimension]);
+		}
+		return master;
+	}
+
+	private void report(Path input) throws IOException {
+		List<Candidate> front = new ArrayList<>();
+		for (Candidate candidate : mEvaluated) {
+			boolean isDominated = false;
+			for (Candidate other : mEvaluated) {
+				if (other.dominates(candidate)) {
+					isDominated = true;
+					break;
+				}
+			}
+			if (!isDominated) front.add(candidate);
+		}
+		front.sort(Comparator.comparingDouble(candidate -> candidate.cost));
+		System.out.printf("Pareto front of %d candidates:%n", front.size());
+		System.out.printf("%10s %10s %8s %8s  %s%n", "overshoot", "settling", "effort", "cost", Arrays.toString(mGains));
+		for (Candidate candidate : front) {
+			System.out.printf("%9.2f%% %9.3fs %8.3f %8.3f  %s%n",
+					candidate.overshoot, candidate.settlingTime, candidate.effort, candidate.cost, Arrays.toString(candidate.values));
+		}
+		Candidate best = front.get(0);
+		Config output = mMapper.convertValue(mConfig, Config.class);
+		output.master = createMaster(best);
+		String name = input.getFileName().toString().replaceFirst("\\.json$", "") + "Optimized.json";
+		Path outputFile = Paths.get(kConfigFolder, name);
+		mMapper.writerWithDefaultPrettyPrinter().writeValue(outputFile.toFile(), output);
+		System.out.printf("Wrote best candidate to %s%n", outputFile);
+	}
+}
@@ -0,0 +1,320 @@
+package team8.tuner.tools;
+
+import team8.tuner.analysis.StepAnalyzer;
+import team8.tuner.analysis.StepAnalyzer.StepResult;
+import team8.tuner.controller.Controller.ControlMode;
+import team8.tuner.data.CsvLogReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Desktop tool which measures every set point step in a collection of logs and aggregates them per mechanism and gains.
+ * Each log is streamed with constant memory, and logs are analyzed in parallel across cores.
+ * <p>
+ * Steps are segmented on the reference channel while the logged control mode is smart motion, like test mode does,
+ * in logs from before the control mode was logged every change of reference counts.
+ * Mechanisms are the channel prefix in logs with several of them, otherwise the name of the directory holding the log.
+ * Gains come from the rows written at the start of each session and on every reload, steps are grouped by the gains they started with.
+ * <p>
+ * Usage: {@code LogAnalytics <log.csv or directory>... [threads=N] [settle=0.5] [tolerance=0] [out=table.csv]}
+ */
+public final class LogAnalytics {
+
+	private static final String kReference = "reference", kUnknownGains = "unknown";
+	private static final String[] kGainNames = {"p", "i", "d", "f", "ff", "a", "v"};
+	private static final double kSmartMotion = ControlMode.SMART_MOTION.getLogCode();
+
+	/**
+	 * Running totals for one mechanism and set of gains, merged across logs.
+	 */
+	private static class Stats {
+		long files, steps, settledSteps, risenSteps;
+		double riseSum, overshootSum, overshootMax, settlingSum, settlingMin = Double.POSITIVE_INFINITY, errorSum;
+
+		void add(StepResult result) {
+			steps++;
+			overshootSum += result.overshoot;
+			overshootMax = Math.max(overshootMax, result.overshoot);
+			errorSum += Math.abs(result.steadyStateError);
+			if (!Double.isNaN(result.riseTime)) {
+				risenSteps++;
+				riseSum += result.riseTime;
+			}
+			if (result.isSettled) {
+				settledSteps++;
+				settlingSum += result.settlingTime;
+				settlingMin = Math.min(settlingMin, result.settlingTime);
+			}
+		}
+
+		Stats merge(Stats other) {
+			files += other.files;
+			steps += other.steps;
+			settledSteps += other.settledSteps;
+			risenSteps += other.risenSteps;
+			riseSum += other.riseSum;
+			overshootSum += other.overshootSum;
+			overshootMax = Math.max(overshootMax, other.overshootMax);
+			settlingSum += other.settlingSum;
+			settlingMin = Math.min(settlingMin, other.settlingMin);
+			errorSum += other.errorSum;
+			return this;
+		}
+
+		double getMeanRise() {
+			return risenSteps == 0 ? Double.NaN : riseSum / risenSteps;
+		}
+
+		double getMeanOvershoot() {
+			return overshootSum / steps;
+		}
+
+		/**
+		 * @return Mean over settled steps only, NaN when none settled
+		 */
+		double getMeanSettling() {
+			return settledSteps == 0 ? Double.NaN : settlingSum / settledSteps;
+		}
+
+		double getMinSettling() {
+			return settledSteps == 0 ? Double.NaN : settlingMin;
+		}
+
+		double getMeanError() {
+			return errorSum / steps;
+		}
+	}
+
+	/**
+	 * Stats keyed by mechanism then gains.
+	 */
+	private static class Result {
+		final Map<String, Map<String, Stats>> stats = new TreeMap<>();
+		long lines;
+
+		Stats get(String mechanism, String gains) {
+			return stats.computeIfAbsent(mechanism, key -> new HashMap<>()).computeIfAbsent(gains, key -> new Stats());
+		}
+
+		Result merge(Result other) {
+			other.stats.forEach((mechanism, byGains) -> byGains.forEach((gains, stats) -> get(mechanism, gains).merge(stats)));
+			lines += other.lines;
+			return this;
+		}
+	}
+
+	/**
+	 * Step analysis of one mechanism within one log.
+	 */
+	private static class MechanismSteps {
+		final String name, prefix, referenceKey, positionKey, controlModeKey;
+		final StepAnalyzer analyzer;
+		double lastReference = Double.NaN;
+		String stepGains = kUnknownGains;
+
+		MechanismSteps(String name, String prefix, boolean isEstimated, double tolerance, double settleWindow) {
+			this.name = name;
+			this.prefix = prefix;
+			referenceKey = prefix + kReference;
+			// Test mode analyzes steps on the estimate when it is estimating
+			positionKey = prefix + (isEstimated ? "estimatedPosition" : "position");
+			controlModeKey = prefix + "controlMode";
+			analyzer = new StepAnalyzer(tolerance, settleWindow);
+		}
+	}
+
+	private final double mTolerance, mSettleWindow;
+
+	private LogAnalytics(double tolerance, double settleWindow) {
+		mTolerance = tolerance;
+		mSettleWindow = settleWindow;
+	}
+
+	public static void main(String... args) throws IOException, InterruptedException, ExecutionException {
+		if (args.length < 1) {
+			System.err.println("Usage: LogAnalytics <log.csv or directory>... [threads=N] [settle=0.5] [tolerance=0] [out=table.csv]");
+			System.exit(1);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		double settleWindow = 0.5, tolerance = 0.0;
+		Path output = null;
+		List<Path> logs = new ArrayList<>();
+		for (String argument : args) {
+			String[] option = argument.split("=", 2);
+			if (option.length == 2) {
+				switch (option[0]) {
+					case "threads":
+						threads = Integer.parseInt(option[1]);
+						break;
+					case "settle":
+						settleWindow = Double.parseDouble(option[1]);
+						break;
+					case "tolerance":
+						tolerance = Double.parseDouble(option[1]);
+						break;
+					case "out":
+						output = Paths.get(option[1]);
+						break;
+					default:
+						System.err.printf("Unknown option %s%n", option[0]);
+						System.exit(1);
+				}
+			} else {
+				Path path = Paths.get(argument);
+				if (Files.isDirectory(path)) {
+					try (Stream<Path> files = Files.walk(path)) {
+						files.filter(file -> Files.isRegularFile(file) && (file.toString().endsWith(".csv") || file.toString().endsWith(".csv.z")))
+								.forEach(logs::add);
+					}
+				} else if (Files.isRegularFile(path)) {
+					logs.add(path);
+				} else {
+					System.err.printf("No log at %s%n", path);
+					System.exit(1);
+				}
+			}
+		}
+		var analytics = new LogAnalytics(tolerance, settleWindow);
+		long startTime = System.nanoTime();
+		var pool = new ForkJoinPool(threads);
+		Result result;
+		try {
+			// Parallel streams run inside of the pool which submits them
+			result = pool.submit(() -> logs.parallelStream().map(analytics::analyze).reduce(Result::merge).orElseGet(Result::new)).get();
+		} finally {
+			pool.shutdown();
+		}
+		System.out.printf("Analyzed %d logs, %d lines in %.1f ms on %d threads%n",
+				logs.size(), result.lines, (System.nanoTime() - startTime) * 1.0e-6, threads);
+		print(result);
+		if (output != null) {
+			write(result, output);
+			System.out.printf("Wrote table to %s%n", output);
+		}
+	}
+
+	/**
+	 * @return Stats of a single log, empty if it could not be read
+	 */
+	private Result analyze(Path log) {
+		var result = new Result();
+		String directoryName = log.toAbsolutePath().getParent() == null ? "" : log.toAbsolutePath().getParent().getFileName().toString();
+		List<MechanismSteps> mechanisms = new ArrayList<>();
+		int knownChannelCount = 0;
+		try (var reader = new CsvLogReader(log)) {
+			Map<String, Double> latest = reader.getLatest();
+			while (reader.next()) {
+				// Look for mechanisms only when a channel appears, which is rare after the first rows
+				if (latest.size() != knownChannelCount) {
+					knownChannelCount = latest.size();
+					findMechanisms(latest, mechanisms, directoryName);
+				}
+				double time = reader.getTime();
+				for (MechanismSteps mechanism : mechanisms) {
+					double reference = reader.get(mechanism.referenceKey, Double.NaN);
+					if (reference != mechanism.lastReference) {
+						mechanism.lastReference = reference;
+						mechanism.stepGains = getGains(reader, mechanism.prefix);
+					}
+					double controlMode = reader.get(mechanism.controlModeKey, kSmartMotion);
+					if (controlMode == kSmartMotion) {
+						if (mechanism.analyzer.update(time, reference, reader.get(mechanism.positionKey, Double.NaN))) {
+							record(result, mechanism);
+						}
+					} else {
+						if (mechanism.analyzer.finish()) record(result, mechanism);
+						mechanism.analyzer.reset();
+					}
+				}
+			}
+			for (MechanismSteps mechanism : mechanisms) {
+				if (mechanism.analyzer.finish()) record(result, mechanism);
+			}
+			result.lines = reader.getLineCount();
+		} catch (IOException | RuntimeException readException) {
+			System.err.printf("Skipping %s which could not be read:%n", log);
+			readException.printStackTrace();
+			return new Result();
+		}
+		// Each log counts once towards every group it has steps in
+		result.stats.values().forEach(byGains -> byGains.values().forEach(stats -> stats.files = 1));
+		return result;
+	}
+
+	private void findMechanisms(Map<String, Double> latest, List<MechanismSteps> mechanisms, String directoryName) {
+		for (String channel : latest.keySet()) {
+			if (!channel.endsWith(kReference)) continue;
+			String prefix = channel.substring(0, channel.length() - kReference.length());
+			if (!prefix.isEmpty() && !prefix.endsWith("/")) continue;
+			if (mechanisms.stream().anyMatch(mechanism -> mechanism.prefix.equals(prefix))) continue;
+			String name = prefix.isEmpty() ? directoryName : prefix.substring(0, prefix.length() - 1);
+			mechanisms.add(new MechanismSteps(name, prefix, latest.containsKey(prefix + "estimatedPosition"), mTolerance, mSettleWindow));
+		}
+	}
+
+	private static String getGains(CsvLogReader reader, String prefix) {
+		if (Double.isNaN(reader.get(prefix + "gains/p", Double.NaN))) return kUnknownGains;
+		return Stream.of(kGainNames)
+				.map(gain -> String.format("%s=%s", gain, reader.get(prefix + "gains/" + gain, Double.NaN)))
+				.collect(Collectors.joining(" "));
+	}
+
+	private static void record(Result result, MechanismSteps mechanism) {
+		result.get(mechanism.name, mechanism.stepGains).add(mechanism.analyzer.getResult());
+	}
+
+	/**
+	 * Sorted by mean settling time within each mechanism, gains which never settled come last.
+	 */
+	private static List<Map.Entry<String, Stats>> sort(Map<String, Stats> byGains) {
+		return byGains.entrySet().stream()
+				.sorted(Comparator.comparingDouble((Map.Entry<String, Stats> entry) -> {
+					double settling = entry.getValue().getMeanSettling();
+					return Double.isNaN(settling) ? Double.POSITIVE_INFINITY : settling;
+				}).thenComparing(Map.Entry::getKey))
+				.collect(Collectors.toList());
+	}
+
+	private static void print(Result result) {
+		result.stats.forEach((mechanism, byGains) -> {
+			System.out.printf("%n%s%n%6s %6s %7s %8s %8s %8s %8s %8s %10s  gains%n",
+					mechanism, "logs", "steps", "settled", "rise", "overshoot", "max os", "settle", "min settle", "|ss error|");
+			for (Map.Entry<String, Stats> entry : sort(byGains)) {
+				Stats stats = entry.getValue();
+				System.out.printf("%6d %6d %7d %8.3f %8.1f %8.1f %8.3f %8.3f %10.4f  %s%n",
+						stats.files, stats.steps, stats.settledSteps, stats.getMeanRise(), stats.getMeanOvershoot(), stats.overshootMax,
+						stats.getMeanSettling(), stats.getMinSettling(), stats.getMeanError(), entry.getKey());
+			}
+		});
+	}
+
+	private static void write(Result result, Path output) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+			writer.write("mechanism,gains,logs,steps,settledSteps,meanRise,meanOvershoot,maxOvershoot,meanSettling,minSettling,meanAbsSteadyStateError");
+			writer.newLine();
+			for (Map.Entry<String, Map<String, Stats>> mechanism : result.stats.entrySet()) {
+				for (Map.Entry<String, Stats> entry : sort(mechanism.getValue())) {
+					Stats stats = entry.getValue();
+					writer.write(String.format("%s,%s,%d,%d,%d,%f,%f,%f,%f,%f,%f", mechanism.getKey(), entry.getKey(),
+							stats.files, stats.steps, stats.settledSteps, stats.getMeanRise(), stats.getMeanOvershoot(), stats.overshootMax,
+							stats.getMeanSettling(), stats.getMinSettling(), stats.getMeanError()));
+					writer.newLine();
+				}
+			}
+		}
+	}
+}
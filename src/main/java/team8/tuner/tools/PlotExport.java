@@ -0,0 +1,260 @@
+package team8.tuner.tools;
+
+import team8.tuner.data.CsvLogReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Desktop tool which pivots a log into one row per time with a column per channel, for spreadsheets and plotting tools.
+ * Channels hold their latest value on rows where they were not written.
+ * <p>
+ * With a point count each channel is downsampled on its own with Largest-Triangle-Three-Buckets, which keeps the peaks
+ * that matter when tuning, like overshoot, where plain decimation would skip them. Cells of channels without a point on a row are left empty.
+ * The log is streamed several times instead of being held in memory: once to find the channels and count rows,
+ * once for the average of every bucket and once to pick the points, so memory only grows with the point count and channels.
+ * <p>
+ * Usage: {@code PlotExport canlog.csv output.csv [points=N] [channels=name,name...]}
+ */
+public final class PlotExport {
+
+	private static final String kCommaDeliminator = ",", kTimeColumn = "time";
+
+	private final Path mInput;
+	private final String[] mChannels;
+	private final long mRowCount;
+	private final double[] mLastValues;
+	private final double mLastTime;
+
+	private PlotExport(Path input, String[] channels, long rowCount, double[] lastValues, double lastTime) {
+		mInput = input;
+		mChannels = channels;
+		mRowCount = rowCount;
+		mLastValues = lastValues;
+		mLastTime = lastTime;
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: PlotExport <canlog.csv> <output.csv> [points=N] [channels=name,name...]");
+			System.exit(1);
+		}
+		Path input = Paths.get(args[0]), output = Paths.get(args[1]);
+		int points = 0;
+		Set<String> selectedChannels = null;
+		for (int index = 2; index < args.length; index++) {
+			String[] option = args[index].split("=", 2);
+			switch (option[0]) {
+				case "points":
+					points = Integer.parseInt(option[1]);
+					break;
+				case "channels":
+					selectedChannels = new LinkedHashSet<>(Arrays.asList(option[1].split(",")));
+					break;
+				default:
+					System.err.printf("Unknown option %s%n", option[0]);
+					System.exit(1);
+			}
+		}
+		long startTime = System.nanoTime();
+		PlotExport export = scan(input, selectedChannels);
+		// Three points is the fewest with a bucket between the first and last
+		if (points >= 3 && points < export.mRowCount) {
+			export.downsample(output, points);
+		} else {
+			export.pivot(output);
+		}
+		System.out.printf("Exported %d rows of %d channels to %s in %.1f ms%n",
+				export.mRowCount, export.mChannels.length, output, (System.nanoTime() - startTime) * 1.0e-6);
+	}
+
+	/**
+	 * First pass, finds the channels in order of appearance and counts the rows.
+	 *
+	 * @param selectedChannels Only these channels in this order, or every channel when null
+	 */
+	private static PlotExport scan(Path input, Set<String> selectedChannels) throws IOException {
+		Set<String> channels = new LinkedHashSet<>();
+		long rowCount = 0L;
+		int knownChannelCount = 0;
+		try (var reader = new CsvLogReader(input)) {
+			while (reader.next()) {
+				rowCount++;
+				if (reader.getLatest().size() != knownChannelCount) {
+					knownChannelCount = reader.getLatest().size();
+					channels.addAll(reader.getLatest().keySet());
+				}
+			}
+			if (selectedChannels != null) {
+				for (String channel : selectedChannels) {
+					if (!channels.contains(channel)) System.err.printf("Channel %s is not in the log%n", channel);
+				}
+				channels = selectedChannels;
+			}
+			String[] channelArray = channels.toArray(new String[0]);
+			double[] lastValues = new double[channelArray.length];
+			for (int channel = 0; channel < channelArray.length; channel++) {
+				lastValues[channel] = reader.get(channelArray[channel], Double.NaN);
+			}
+			return new PlotExport(input, channelArray, rowCount, lastValues, reader.getTime());
+		}
+	}
+
+	private void pivot(Path output) throws IOException {
+		var builder = new StringBuilder();
+		try (var reader = new CsvLogReader(mInput); BufferedWriter writer = Files.newBufferedWriter(output)) {
+			writeHeader(writer);
+			while (reader.next()) {
+				builder.setLength(0);
+				builder.append(reader.getTime());
+				for (String channel : mChannels) {
+					appendCell(builder, reader.get(channel, Double.NaN));
+				}
+				writer.append(builder).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * The first and last rows are always kept. Rows in between are split evenly into buckets,
+	 * and each channel keeps the point in every bucket which makes the largest triangle with the point it kept in the previous bucket
+	 * and the average of the next bucket.
+	 */
+	private void downsample(Path output, int points) throws IOException {
+		int bucketCount = points - 2, channelCount = mChannels.length;
+		double bucketSize = (double) (mRowCount - 2) / bucketCount;
+		// Second pass, average time and value of every bucket
+		double[][] timeSums = new double[channelCount][bucketCount], valueSums = new double[channelCount][bucketCount];
+		long[][] counts = new long[channelCount][bucketCount];
+		try (var reader = new CsvLogReader(mInput)) {
+			for (long row = 0L; reader.next(); row++) {
+				if (row == 0L || row == mRowCount - 1) continue;
+				int bucket = getBucket(row, bucketSize, bucketCount);
+				for (int channel = 0; channel < channelCount; channel++) {
+					double value = reader.get(mChannels[channel], Double.NaN);
+					if (Double.isNaN(value)) continue;
+					timeSums[channel][bucket] += reader.getTime();
+					valueSums[channel][bucket] += value;
+					counts[channel][bucket]++;
+				}
+			}
+		}
+		// Third pass, pick the point of every bucket and write the points of a bucket once it is complete
+		double[] keptTimes = new double[channelCount], keptValues = new double[channelCount];
+		double[] bestAreas = new double[channelCount], bestTimes = new double[channelCount], bestValues = new double[channelCount];
+		long[] bestRows = new long[channelCount];
+		var builder = new StringBuilder();
+		try (var reader = new CsvLogReader(mInput); BufferedWriter writer = Files.newBufferedWriter(output)) {
+			writeHeader(writer);
+			int bucket = 0;
+			resetBest(bestAreas, bestRows);
+			for (long row = 0L; reader.next(); row++) {
+				double time = reader.getTime();
+				if (row == 0L || row == mRowCount - 1) {
+					// Kept by every channel, a channel not written yet keeps nothing until it appears
+					builder.setLength(0);
+					builder.append(time);
+					for (int channel = 0; channel < channelCount; channel++) {
+						double value = reader.get(mChannels[channel], Double.NaN);
+						keptTimes[channel] = time;
+						keptValues[channel] = value;
+						appendCell(builder, value);
+					}
+					writer.append(builder).append('\n');
+					continue;
+				}
+				int rowBucket = getBucket(row, bucketSize, bucketCount);
+				if (rowBucket != bucket) {
+					writeBest(writer, builder, bestRows, bestTimes, bestValues, keptTimes, keptValues);
+					resetBest(bestAreas, bestRows);
+					bucket = rowBucket;
+				}
+				boolean isLastBucket = bucket == bucketCount - 1;
+				for (int channel = 0; channel < channelCount; channel++) {
+					double value = reader.get(mChannels[channel], Double.NaN);
+					if (Double.isNaN(value)) continue;
+					double nextTime, nextValue;
+					if (isLastBucket || counts[channel][bucket + 1] == 0L) {
+						nextTime = mLastTime;
+						nextValue = mLastValues[channel];
+					} else {
+						nextTime = timeSums[channel][bucket + 1] / counts[channel][bucket + 1];
+						nextValue = valueSums[channel][bucket + 1] / counts[channel][bucket + 1];
+					}
+					// Twice the triangle area, anything beats nothing when the previous or next point is missing
+					double area = Math.abs((keptTimes[channel] - nextTime) * (value - keptValues[channel])
+							- (keptTimes[channel] - time) * (nextValue - keptValues[channel]));
+					if (Double.isNaN(area)) area = 0.0;
+					if (area > bestAreas[channel]) {
+						bestAreas[channel] = area;
+						bestRows[channel] = row;
+						bestTimes[channel] = time;
+						bestValues[channel] = value;
+					}
+				}
+				if (row == mRowCount - 2) {
+					writeBest(writer, builder, bestRows, bestTimes, bestValues, keptTimes, keptValues);
+				}
+			}
+		}
+	}
+
+	private static int getBucket(long row, double bucketSize, int bucketCount) {
+		return (int) Math.min(bucketCount - 1, (long) ((row - 1) / bucketSize));
+	}
+
+	private static void resetBest(double[] bestAreas, long[] bestRows) {
+		Arrays.fill(bestAreas, -1.0);
+		Arrays.fill(bestRows, -1L);
+	}
+
+	/**
+	 * Writes the points kept from one bucket in row order, channels which kept a point on another row get an empty cell.
+	 */
+	private void writeBest(BufferedWriter writer, StringBuilder builder, long[] bestRows, double[] bestTimes, double[] bestValues,
+						   double[] keptTimes, double[] keptValues) throws IOException {
+		List<Long> rows = new ArrayList<>();
+		for (int channel = 0; channel < mChannels.length; channel++) {
+			if (bestRows[channel] < 0L) continue;
+			keptTimes[channel] = bestTimes[channel];
+			keptValues[channel] = bestValues[channel];
+			if (!rows.contains(bestRows[channel])) rows.add(bestRows[channel]);
+		}
+		rows.sort(null);
+		for (long row : rows) {
+			builder.setLength(0);
+			for (int channel = 0; channel < mChannels.length; channel++) {
+				if (bestRows[channel] == row && builder.length() == 0) builder.append(bestTimes[channel]);
+			}
+			for (int channel = 0; channel < mChannels.length; channel++) {
+				appendCell(builder, bestRows[channel] == row ? bestValues[channel] : Double.NaN);
+			}
+			writer.append(builder).append('\n');
+		}
+	}
+
+	private void writeHeader(BufferedWriter writer) throws IOException {
+		writer.write(kTimeColumn);
+		for (String channel : mChannels) {
+			writer.write(kCommaDeliminator);
+			writer.write(channel);
+		}
+		writer.newLine();
+	}
+
+	/**
+	 * Missing values are left empty rather than written as NaN, which most plotting tools treat as a gap.
+	 */
+	private static void appendCell(StringBuilder builder, double value) {
+		builder.append(kCommaDeliminator);
+		if (!Double.isNaN(value)) builder.append(value);
+	}
+}
@@ -0,0 +1,68 @@
+package team8.tuner.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import team8.tuner.analysis.StepAnalyzer.StepResult;
+import team8.tuner.config.Config;
+import team8.tuner.controller.Controller.ControlMode;
+import team8.tuner.sim.SimulatedSession;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Desktop tool which runs the A, B, X then Y set points of a config against the plant in its master config,
+ * printing each step response and optionally writing a wide CSV of the session.
+ * <p>
+ * Usage: {@code Simulate config.json [holdSeconds] [SMART_MOTION|SMART_VELOCITY] [output.csv]}
+ */
+public final class Simulate {
+
+	private static final double kLoopPeriod = 0.02, kDefaultHoldTime = 3.0;
+
+	private Simulate() {
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: Simulate <config.json> [holdSeconds] [SMART_MOTION|SMART_VELOCITY] [output.csv]");
+			System.exit(1);
+		}
+		Config config = new ObjectMapper().readValue(Paths.get(args[0]).toFile(), Config.class);
+		double holdTime = args.length > 1 ? Double.parseDouble(args[1]) : kDefaultHoldTime;
+		ControlMode controlMode = args.length > 2 ? ControlMode.valueOf(args[2]) : ControlMode.SMART_MOTION;
+		double[] setPoints = {config.aSetPoint, config.bSetPoint, config.xSetPoint, config.ySetPoint};
+		var session = new SimulatedSession(config.master, kLoopPeriod, config.stepSettleWindow);
+		long startTime = System.nanoTime();
+		SimulatedSession.Summary summary;
+		if (args.length > 3) {
+			Path output = Paths.get(args[3]);
+			try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+				writer.write("time,reference,output,position,velocity,current");
+				writer.newLine();
+				summary = session.run(controlMode, setPoints, holdTime, (time, reference, master) -> {
+					try {
+						writer.write(String.format("%f,%f,%f,%f,%f,%f", time, reference,
+								master.getAppliedPercentOutput(), master.getPosition(), master.getVelocity(), master.getOutputCurrent()));
+						writer.newLine();
+					} catch (IOException writeException) {
+						throw new UncheckedIOException(writeException);
+					}
+				});
+			}
+			System.out.printf("Wrote session to %s%n", output);
+		} else {
+			summary = session.run(controlMode, setPoints, holdTime, null);
+		}
+		for (StepResult step : summary.steps) {
+			System.out.printf("Step %.2f -> %.2f: rise %.3f s, overshoot %.1f%%, settling %.3f s, error %.4f%s%n",
+					step.initial, step.target, step.riseTime, step.overshoot, step.settlingTime, step.steadyStateError,
+					step.isSettled ? "" : " (not settled)");
+		}
+		System.out.printf("Simulated %.1f s in %.1f ms, effort %.2f%n",
+				summary.duration, (System.nanoTime() - startTime) * 1.0e-6, summary.effort);
+	}
+}